@@ -1,7 +1,20 @@
 import buffer.ConfigurableBuffer;
+import buffer.LockProfiler;
+import buffer.OverflowPolicy;
 import config.ConfigManager;
 import consumer.Consumer;
+import consumer.ConsumerAutoscaler;
+import consumer.WindowedAggregator;
+import producer.JournalWriter;
 import producer.Producer;
+import producer.ReplayProducer;
+import util.Logger;
+import util.StallWatchdog;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class ProducerConsumerMain {
     public static void main(String[] args) {
@@ -16,6 +29,9 @@ public class ProducerConsumerMain {
         int consumerCount = configManager.getInt("consumer.count", 3);
         int producerSleepTime = configManager.getInt("producer.sleep.time", 100);
         int consumerSleepTime = configManager.getInt("consumer.sleep.time", 150);
+        int consumerBatchMax = configManager.getInt("consumer.batch.max", 1);
+        int consumerBatchLingerMs = configManager.getInt("consumer.batch.linger.ms", 0);
+        boolean autoscale = configManager.getBoolean("consumer.autoscale.enabled", false);
 
         System.out.println("Configuration Loaded:");
         System.out.println("Buffer Size: " + bufferSize);
@@ -23,28 +39,149 @@ public class ProducerConsumerMain {
         System.out.println("Consumer Count: " + consumerCount);
         System.out.println("Producer Sleep Time: " + producerSleepTime + "ms");
         System.out.println("Consumer Sleep Time: " + consumerSleepTime + "ms");
+        System.out.println("Consumer Batch Max: " + consumerBatchMax);
+        System.out.println("Consumer Batch Linger: " + consumerBatchLingerMs + "ms");
+        System.out.println("Consumer Autoscaling: " + (autoscale ? "enabled" : "disabled"));
+
+        // Enable lock profiling before the buffer is created, so it is instrumented
+        if (configManager.getBoolean("buffer.profile.locks", false)) {
+            LockProfiler.enable(configManager.getInt("buffer.profile.sample.rate", 64));
+            System.out.println("Lock profiling enabled.");
+        }
 
         // Create the shared buffer
         ConfigurableBuffer buffer = new ConfigurableBuffer(bufferSize);
 
-        // Start producer threads
-        for (int i = 1; i <= producerCount; i++) {
-            String producerName = "Producer-" + i;
-            Producer producer = new Producer(buffer, producerName, producerSleepTime);
-            Thread producerThread = new Thread(producer);
-            producerThread.start();
-            System.out.println(producerName + " started.");
+        // Configure what happens when the buffer is full and how long items stay valid
+        OverflowPolicy overflowPolicy = parseOverflowPolicy(configManager.getString("buffer.overflow.policy", "BLOCK"));
+        buffer.setBlockTimeout(configManager.getInt("buffer.overflow.timeout.ms", 1000), TimeUnit.MILLISECONDS);
+        buffer.setCallerRunsHandler(item -> System.out.println("Buffer full, item processed by producer: " + item));
+        buffer.setOverflowPolicy(overflowPolicy);
+        int itemTtlMs = configManager.getInt("buffer.item.ttl.ms", 0);
+        if (itemTtlMs > 0) {
+            buffer.setItemTimeToLive(itemTtlMs, TimeUnit.MILLISECONDS);
+            buffer.startExpirySweeper(Math.max(1, itemTtlMs / 4), TimeUnit.MILLISECONDS);
+        }
+        System.out.println("Overflow Policy: " + overflowPolicy);
+        System.out.println("Item TTL: " + (itemTtlMs > 0 ? itemTtlMs + "ms" : "none"));
+
+        // Watch producers, consumers and the buffer for stalls
+        StallWatchdog watchdog = configManager.getBoolean("watchdog.enabled", false)
+                ? new StallWatchdog(configManager.getInt("watchdog.stall.threshold.ms", 5000), TimeUnit.MILLISECONDS)
+                : null;
+        if (watchdog != null) {
+            watchdog.watchBuffer(buffer.getName(), buffer, buffer::getSize, buffer::getCapacity, buffer::getRemovedCount);
+            watchdog.start();
+            System.out.println("Stall watchdog started.");
+        }
+
+        // Start producer threads, or replay captured traffic in their place
+        String replayPath = configManager.getString("producer.replay.path", "").trim();
+        if (!replayPath.isEmpty()) {
+            double replaySpeed = Double.parseDouble(configManager.getString("producer.replay.speed", "1").trim());
+            ReplayProducer replayProducer = new ReplayProducer(Paths.get(replayPath), buffer, "Replay",
+                    replaySpeed > 0 ? replaySpeed : ReplayProducer.MAX_SPEED);
+            new Thread(replayProducer).start();
+            System.out.println("Replaying " + replayPath + " at " + (replaySpeed > 0 ? replaySpeed + "x" : "max") + " speed.");
+        } else {
+            JournalWriter journal = openJournal(configManager.getString("producer.journal.path", "").trim());
+            for (int i = 1; i <= producerCount; i++) {
+                String producerName = "Producer-" + i;
+                Producer producer = new Producer(buffer, producerName, producerSleepTime);
+                producer.setStallWatchdog(watchdog);
+                producer.setJournal(journal);
+                Thread producerThread = new Thread(producer);
+                producerThread.start();
+                System.out.println(producerName + " started.");
+            }
+        }
+
+        // Aggregate the consumed items over time windows shared by all consumers
+        int windowSizeMs = configManager.getInt("consumer.window.size.ms", 10000);
+        WindowedAggregator aggregator = configManager.getBoolean("consumer.window.enabled", false)
+                ? new WindowedAggregator(windowSizeMs, configManager.getInt("consumer.window.slide.ms", windowSizeMs),
+                        TimeUnit.MILLISECONDS, configManager.getInt("consumer.window.distinct.precision", 10),
+                        result -> System.out.println("Consumed " + result))
+                : null;
+        if (aggregator != null) {
+            aggregator.start();
+            System.out.println("Windowed aggregation started.");
         }
 
-        // Start consumer threads
-        for (int i = 1; i <= consumerCount; i++) {
-            String consumerName = "Consumer-" + i;
-            Consumer consumer = new Consumer(buffer, consumerName, consumerSleepTime);
-            Thread consumerThread = new Thread(consumer);
-            consumerThread.start();
-            System.out.println(consumerName + " started.");
+        // Start consumer threads, either a fixed number or a pool that follows the load
+        Function<String, Consumer> consumerFactory = consumerName -> {
+            Consumer consumer = consumerBatchMax > 1
+                    ? new Consumer(buffer, consumerName, consumerSleepTime, consumerBatchMax, consumerBatchLingerMs,
+                            (items, count) -> System.out.println(consumerName + " consumed batch of " + count + " items"))
+                    : new Consumer(buffer, consumerName, consumerSleepTime);
+            consumer.setStallWatchdog(watchdog);
+            consumer.setAggregator(aggregator);
+            return consumer;
+        };
+        if (autoscale) {
+            ConsumerAutoscaler autoscaler = new ConsumerAutoscaler(buffer, "Consumer", consumerFactory,
+                    configManager.getInt("consumer.autoscale.min", 1),
+                    configManager.getInt("consumer.autoscale.max", consumerCount));
+            autoscaler.setWatermarks(configManager.getInt("consumer.autoscale.low.percent", 10) / 100.0,
+                    configManager.getInt("consumer.autoscale.high.percent", 75) / 100.0);
+            autoscaler.setSustainSamples(configManager.getInt("consumer.autoscale.sustain.samples", 3));
+            autoscaler.setCooldown(configManager.getInt("consumer.autoscale.cooldown.ms", 2000), TimeUnit.MILLISECONDS);
+            autoscaler.start(configManager.getInt("consumer.autoscale.period.ms", 250), TimeUnit.MILLISECONDS);
+            System.out.println("Consumer autoscaler started.");
+        } else {
+            for (int i = 1; i <= consumerCount; i++) {
+                String consumerName = "Consumer-" + i;
+                Thread consumerThread = new Thread(consumerFactory.apply(consumerName));
+                consumerThread.start();
+                System.out.println(consumerName + " started.");
+            }
         }
 
         System.out.println("Simulation running. Press Ctrl+C to exit.");
     }
+
+    /**
+     * Parses the configured overflow policy, falling back to BLOCK like the other settings do
+     * when their value is invalid.
+     *
+     * @param value the configured policy name.
+     * @return the overflow policy.
+     */
+    private static OverflowPolicy parseOverflowPolicy(String value) {
+        try {
+            return OverflowPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid overflow policy for key: buffer.overflow.policy. Using default: BLOCK");
+            return OverflowPolicy.BLOCK;
+        }
+    }
+
+    /**
+     * Opens the journal that captures the produced items, and closes it at shutdown so that
+     * buffered records are written.
+     *
+     * @param path the journal file, or an empty string to not capture.
+     * @return the journal, or null if capturing is disabled or the journal cannot be created.
+     */
+    private static JournalWriter openJournal(String path) {
+        if (path.isEmpty()) {
+            return null;
+        }
+        try {
+            JournalWriter journal = new JournalWriter(Paths.get(path));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                    System.out.println("Captured " + journal.getRecordCount() + " items to " + path + ".");
+                } catch (IOException e) {
+                    Logger.error("Could not close journal " + path + ": " + e.getMessage());
+                }
+            }));
+            System.out.println("Capturing produced items to " + path + ".");
+            return journal;
+        } catch (IOException e) {
+            Logger.error("Could not create journal " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package buffer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event recorded when a batch of items is drained from a buffer in one operation.
+ */
+@Name("buffer.BatchDrained")
+@Label("Batch Drained")
+@Category({"Producer-Consumer", "Buffer"})
+@Description("Several items were removed from a buffer in one operation")
+@StackTrace(false)
+public final class BatchDrained extends Event {
+
+    @Label("Buffer")
+    String bufferName;
+
+    @Label("Depth")
+    @Description("Number of items in the buffer when the event ended")
+    int depth;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Item Count")
+    @Description("Number of items drained")
+    int itemCount;
+}
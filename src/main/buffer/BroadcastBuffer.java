@@ -0,0 +1,347 @@
+package buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded buffer in which every subscriber receives every item, for consumers such as audit,
+ * metrics and persistence that each need the full stream.
+ * <p>
+ * Items are stored once, in a single ring. Each {@link Subscriber} reads the ring through its
+ * own cursor, and a slot is only reused once the slowest subscriber has read it, so producers
+ * are gated on the slowest subscriber. To keep one stalled subscriber from stalling everybody,
+ * a lag timeout can be set: a producer that has waited that long for space detaches the
+ * subscribers that hold the ring full.
+ * <p>
+ * Subscribers only see items added after they subscribed; items added while nobody is
+ * subscribed are not retained.
+ */
+public class BroadcastBuffer {
+    private final String name;
+    private final int[] items;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long tail;    // Sequence number of the next item to be added
+    private long slowest; // Cursor of the slowest subscriber; may lag behind until recomputed
+    private long lagTimeoutNanos = -1;
+    private long detachedCount;
+
+    /**
+     * Constructs a BroadcastBuffer.
+     *
+     * @param name the name of the buffer (used in diagnostics).
+     * @param capacity the maximum number of items the slowest subscriber can fall behind.
+     * @throws IllegalArgumentException if capacity is less than 1.
+     */
+    public BroadcastBuffer(String name, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1.");
+        }
+        this.name = name;
+        this.items = new int[capacity];
+    }
+
+    /**
+     * Adds an item for all current subscribers.
+     * Blocks while the slowest subscriber is a full ring behind. If a lag timeout is set and
+     * expires while waiting, the subscribers holding the ring full are detached instead.
+     *
+     * @param item the item to add to the buffer.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized void addItem(int item) throws InterruptedException {
+        if (tail - slowest >= items.length) {
+            slowest = slowestCursor();
+        }
+        if (tail - slowest >= items.length) {
+            awaitSpace();
+        }
+        items[(int) (tail % items.length)] = item;
+        tail++;
+        notifyAll(); // Notify subscribers that an item is available
+    }
+
+    /**
+     * Waits until the slowest subscriber frees a slot, detaching lagging subscribers once the
+     * lag timeout expires. Must be called while holding the buffer's monitor.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private void awaitSpace() throws InterruptedException {
+        BufferFullWait fullWait = new BufferFullWait();
+        fullWait.begin();
+        long deadline = System.nanoTime() + lagTimeoutNanos;
+        while (tail - slowest >= items.length) {
+            if (lagTimeoutNanos < 0) {
+                wait(); // Wait until the slowest subscriber reads an item
+            } else {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    detachLagging();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            slowest = slowestCursor();
+        }
+        fullWait.end();
+        if (fullWait.shouldCommit()) {
+            fullWait.bufferName = name;
+            fullWait.depth = (int) (tail - slowest);
+            fullWait.capacity = items.length;
+            fullWait.itemCount = 1;
+            fullWait.commit();
+        }
+    }
+
+    /**
+     * Detaches every subscriber that is a full ring behind.
+     * Must be called while holding the buffer's monitor.
+     */
+    private void detachLagging() {
+        for (int i = subscribers.size() - 1; i >= 0; i--) {
+            Subscriber subscriber = subscribers.get(i);
+            if (tail - subscriber.cursor >= items.length) {
+                subscribers.remove(i);
+                subscriber.detached = true;
+                detachedCount++;
+            }
+        }
+        notifyAll(); // Let detached subscribers that are waiting find out
+    }
+
+    /**
+     * Computes the cursor of the slowest subscriber.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @return the smallest cursor, or the tail if there are no subscribers.
+     */
+    private long slowestCursor() {
+        long min = tail;
+        for (int i = 0; i < subscribers.size(); i++) {
+            min = Math.min(min, subscribers.get(i).cursor);
+        }
+        return min;
+    }
+
+    /**
+     * Registers a subscriber that receives every item added from now on.
+     *
+     * @param subscriberName the name of the subscriber (used in diagnostics).
+     * @return the subscriber's handle to the buffer.
+     */
+    public synchronized Subscriber subscribe(String subscriberName) {
+        Subscriber subscriber = new Subscriber(subscriberName, tail);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Sets how long a producer waits for the slowest subscribers before detaching them.
+     *
+     * @param timeout the maximum time to wait for a lagging subscriber, or a negative value to
+     *                wait indefinitely (the default).
+     * @param unit the unit of the timeout argument.
+     */
+    public synchronized void setLagTimeout(long timeout, TimeUnit unit) {
+        this.lagTimeoutNanos = timeout < 0 ? -1 : unit.toNanos(timeout);
+    }
+
+    /**
+     * Gets the name of the buffer.
+     *
+     * @return the buffer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the capacity of the buffer.
+     *
+     * @return the maximum number of items the slowest subscriber can fall behind.
+     */
+    public int getCapacity() {
+        return items.length;
+    }
+
+    /**
+     * Gets the number of items still retained for at least one subscriber.
+     *
+     * @return the distance between the newest item and the slowest subscriber.
+     */
+    public synchronized int getSize() {
+        return (int) (tail - slowestCursor());
+    }
+
+    /**
+     * Gets the number of attached subscribers.
+     *
+     * @return the number of subscribers.
+     */
+    public synchronized int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Gets the total number of items added to the buffer.
+     *
+     * @return the number of added items.
+     */
+    public synchronized long getAddedCount() {
+        return tail;
+    }
+
+    /**
+     * Gets the number of subscribers that were detached for falling too far behind.
+     *
+     * @return the number of detached subscribers.
+     */
+    public synchronized long getDetachedCount() {
+        return detachedCount;
+    }
+
+    /**
+     * A consumer's view of the buffer, with its own read cursor.
+     * A subscriber must be used by one thread at a time.
+     */
+    public final class Subscriber implements AutoCloseable {
+        private final String subscriberName;
+        private long cursor;      // Guarded by the buffer's monitor
+        private boolean detached; // Guarded by the buffer's monitor
+
+        private Subscriber(String subscriberName, long cursor) {
+            this.subscriberName = subscriberName;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Removes the next item for this subscriber.
+         * Blocks until an item is available.
+         *
+         * @return the next item added to the buffer.
+         * @throws InterruptedException if the thread is interrupted while waiting.
+         * @throws IllegalStateException if the subscriber has been closed or detached.
+         */
+        public int removeItem() throws InterruptedException {
+            synchronized (BroadcastBuffer.this) {
+                awaitItem();
+                return next();
+            }
+        }
+
+        /**
+         * Removes up to {@code maxItems} items for this subscriber into {@code dest}.
+         * Blocks until at least one item is available.
+         *
+         * @param dest the array to copy the items into.
+         * @param offset the index in dest of the first item.
+         * @param maxItems the maximum number of items to remove.
+         * @return the number of items removed.
+         * @throws InterruptedException if the thread is interrupted while waiting.
+         * @throws IllegalStateException if the subscriber has been closed or detached.
+         */
+        public int drainTo(int[] dest, int offset, int maxItems) throws InterruptedException {
+            synchronized (BroadcastBuffer.this) {
+                awaitItem();
+                int drained = 0;
+                while (drained < maxItems && cursor < tail) {
+                    dest[offset + drained++] = next();
+                }
+                return drained;
+            }
+        }
+
+        /**
+         * Leaves the buffer. Producers no longer wait for this subscriber.
+         */
+        @Override
+        public void close() {
+            synchronized (BroadcastBuffer.this) {
+                subscribers.remove(this);
+                detached = true;
+                BroadcastBuffer.this.notifyAll(); // Producers may have been waiting for this subscriber
+            }
+        }
+
+        /**
+         * Checks whether the subscriber has been closed or detached for falling too far behind.
+         *
+         * @return true if the subscriber no longer receives items.
+         */
+        public boolean isDetached() {
+            synchronized (BroadcastBuffer.this) {
+                return detached;
+            }
+        }
+
+        /**
+         * Gets the number of items added to the buffer that this subscriber has not yet removed.
+         *
+         * @return the subscriber's lag.
+         */
+        public int getLag() {
+            synchronized (BroadcastBuffer.this) {
+                return (int) (tail - cursor);
+            }
+        }
+
+        /**
+         * Gets the name of the subscriber.
+         *
+         * @return the subscriber name.
+         */
+        public String getSubscriberName() {
+            return subscriberName;
+        }
+
+        /**
+         * Waits until an item is available for this subscriber.
+         * Must be called while holding the buffer's monitor.
+         *
+         * @throws InterruptedException if the thread is interrupted while waiting.
+         * @throws IllegalStateException if the subscriber has been closed or detached.
+         */
+        private void awaitItem() throws InterruptedException {
+            checkAttached();
+            if (cursor < tail) {
+                return;
+            }
+            BufferEmptyWait emptyWait = new BufferEmptyWait();
+            emptyWait.begin();
+            while (cursor == tail) {
+                BroadcastBuffer.this.wait(); // Wait until a producer adds an item
+                checkAttached();
+            }
+            emptyWait.end();
+            if (emptyWait.shouldCommit()) {
+                emptyWait.bufferName = name + "/" + subscriberName;
+                emptyWait.depth = 0;
+                emptyWait.capacity = items.length;
+                emptyWait.itemCount = 1;
+                emptyWait.commit();
+            }
+        }
+
+        /**
+         * Reads the item at the cursor and advances it, waking producers if this subscriber was
+         * holding the ring full. Must be called while holding the buffer's monitor.
+         *
+         * @return the item at the cursor.
+         */
+        private int next() {
+            int item = items[(int) (cursor % items.length)];
+            if (tail - cursor >= items.length) {
+                BroadcastBuffer.this.notifyAll(); // Notify producers that space may be available
+            }
+            cursor++;
+            return item;
+        }
+
+        private void checkAttached() {
+            if (detached) {
+                throw new IllegalStateException(subscriberName + " has been detached from " + name + ".");
+            }
+        }
+    }
+}
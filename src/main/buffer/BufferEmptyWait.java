@@ -0,0 +1,33 @@
+package buffer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event recorded when a consumer waits on an empty buffer for longer than the configured threshold.
+ */
+@Name("buffer.BufferEmptyWait")
+@Label("Buffer Empty Wait")
+@Category({"Producer-Consumer", "Buffer"})
+@Description("A consumer waited for an item in an empty buffer")
+@Threshold("10 ms")
+public final class BufferEmptyWait extends Event {
+
+    @Label("Buffer")
+    String bufferName;
+
+    @Label("Depth")
+    @Description("Number of items in the buffer when the event ended")
+    int depth;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Item Count")
+    @Description("Number of items the waiting operation removed")
+    int itemCount;
+}
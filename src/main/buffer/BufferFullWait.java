@@ -0,0 +1,33 @@
+package buffer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event recorded when a producer waits on a full buffer for longer than the configured threshold.
+ */
+@Name("buffer.BufferFullWait")
+@Label("Buffer Full Wait")
+@Category({"Producer-Consumer", "Buffer"})
+@Description("A producer waited for space in a full buffer")
+@Threshold("10 ms")
+public final class BufferFullWait extends Event {
+
+    @Label("Buffer")
+    String bufferName;
+
+    @Label("Depth")
+    @Description("Number of items in the buffer when the event ended")
+    int depth;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Item Count")
+    @Description("Number of items the waiting operation added")
+    int itemCount;
+}
@@ -0,0 +1,32 @@
+package buffer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event recorded when the capacity of a buffer is changed.
+ */
+@Name("buffer.BufferResized")
+@Label("Buffer Resized")
+@Category({"Producer-Consumer", "Buffer"})
+@Description("The capacity of a buffer was changed")
+@StackTrace(false)
+public final class BufferResized extends Event {
+
+    @Label("Buffer")
+    String bufferName;
+
+    @Label("Depth")
+    @Description("Number of items in the buffer when the event ended")
+    int depth;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Previous Capacity")
+    int previousCapacity;
+}
@@ -1,15 +1,66 @@
 package buffer;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 /**
  * ConfigurableBuffer is a thread-safe bounded buffer implementation.
  * It allows producers to add items and consumers to remove items while adhering to the buffer size limits.
+ * Besides the blocking methods it offers a {@link CompletableFuture} based API for callers
+ * that must not dedicate a thread to waiting on the buffer.
+ * What happens when the buffer is full is controlled by its {@link OverflowPolicy}, and items can be
+ * given a time-to-live after which they are dropped instead of being handed to consumers.
+ * When lock profiling is enabled (see {@link LockProfiler}) the time spent acquiring, holding and
+ * waiting on the buffer's monitor is sampled. Waits, batch drains and resizes are reported as
+ * Java Flight Recorder events ({@link BufferFullWait}, {@link BufferEmptyWait}, {@link BatchDrained}
+ * and {@link BufferResized}) when a recording enables them.
  */
-public class ConfigurableBuffer {
-    private final Queue<Integer> buffer;
-    private final int maxSize;
+public class ConfigurableBuffer implements TimedItemBuffer {
+    private static final AtomicInteger BUFFER_IDS = new AtomicInteger();
+
+    // Items are kept in a ring of primitive arrays; enqueuedAt is 0 for items added without a TTL
+    // count and maxSize are only written under the monitor; they are volatile so that tryAdd and
+    // tryRemove can answer "full" or "empty" without entering it
+    private int[] items;
+    private long[] enqueuedAt;
+    private int head;
+    private volatile int count;
+    private volatile int maxSize;
+    private final String name;
+    private final LockProfiler profiler;
+
+    // Whether every operation is echoed to the console
+    private volatile boolean verbose = true;
+
+    // Overflow handling and item expiry, guarded by the buffer's monitor
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private long blockTimeoutNanos;
+    private IntConsumer callerRunsHandler;
+    private volatile long itemTtlNanos;
+    private final long[] overflowCounts = new long[OverflowPolicy.values().length];
+    private long expiredCount;
+
+    // Items that left the buffer; only written under the monitor, volatile so that monitoring
+    // threads can read it without entering the monitor
+    private volatile long removedCount;
+
+    // Pending asynchronous operations. A waiter is only queued while the buffer is full (adds)
+    // or empty (removes), and is completed directly by the opposite operation.
+    private final Queue<Waiter<Void>> addWaiters = new ConcurrentLinkedQueue<>();
+    private final Queue<Waiter<Integer>> removeWaiters = new ConcurrentLinkedQueue<>();
+
+    // Completions of async adds admitted and async removes served under the monitor; they are run after leaving it
+    private List<Runnable> completions;
 
     /**
      * Constructs a ConfigurableBuffer with a specified maximum size.
@@ -18,55 +69,884 @@ public class ConfigurableBuffer {
      * @throws IllegalArgumentException if maxSize is less than 1.
      */
     public ConfigurableBuffer(int maxSize) {
+        this("ConfigurableBuffer-" + BUFFER_IDS.incrementAndGet(), maxSize);
+    }
+
+    /**
+     * Constructs a named ConfigurableBuffer with a specified maximum size.
+     *
+     * @param name the name of the buffer (used in diagnostics).
+     * @param maxSize the maximum number of items the buffer can hold.
+     * @throws IllegalArgumentException if maxSize is less than 1.
+     */
+    public ConfigurableBuffer(String name, int maxSize) {
         if (maxSize < 1) {
             throw new IllegalArgumentException("Buffer size must be at least 1.");
         }
+        this.name = name;
         this.maxSize = maxSize;
-        this.buffer = new LinkedList<>();
+        this.items = new int[maxSize];
+        this.enqueuedAt = new long[maxSize];
+        this.profiler = LockProfiler.forBuffer(this, name);
     }
 
     /**
      * Adds an item to the buffer.
-     * Blocks if the buffer is full until space becomes available.
+     * If an asynchronous remover is pending, the item is handed to it directly. If the buffer is
+     * full, the configured {@link OverflowPolicy} decides what happens; by default the call blocks
+     * until space becomes available.
      *
      * @param item the item to add to the buffer.
      * @throws InterruptedException if the thread is interrupted while waiting.
+     * @throws IllegalStateException if the item is rejected by the REJECT policy, or by the
+     *                               BLOCK_WITH_TIMEOUT policy after the timeout elapsed.
      */
-    public synchronized void addItem(int item) throws InterruptedException {
-        while (buffer.size() == maxSize) {
-            System.out.println("Buffer is full. Producer is waiting...");
-            wait(); // Wait until space is available
+    @Override
+    public void addItem(int item) throws InterruptedException {
+        IntConsumer runInCaller = null;
+        List<Runnable> toFinish;
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                boolean accept = true;
+                if (count >= maxSize) {
+                    expire();
+                }
+                if (count >= maxSize) {
+                    overflowCounts[overflowPolicy.ordinal()]++;
+                    switch (overflowPolicy) {
+                        case BLOCK:
+                            awaitSpace(sample, -1);
+                            break;
+                        case BLOCK_WITH_TIMEOUT:
+                            if (!awaitSpace(sample, blockTimeoutNanos)) {
+                                throw new IllegalStateException("Buffer is full: timed out adding item " + item);
+                            }
+                            break;
+                        case REJECT:
+                            throw new IllegalStateException("Buffer is full: rejected item " + item);
+                        case DROP_NEWEST:
+                            accept = false;
+                            break;
+                        case DROP_OLDEST:
+                            // A buffer that was shrunk below its depth sheds the excess as well
+                            while (count >= maxSize) {
+                                dequeue();
+                            }
+                            break;
+                        case CALLER_RUNS:
+                            runInCaller = callerRunsHandler;
+                            accept = false;
+                            break;
+                        default:
+                            throw new IllegalStateException("Unknown overflow policy: " + overflowPolicy);
+                    }
+                }
+                if (accept) {
+                    deliver(item);
+                    if (verbose) {
+                        System.out.println("Item added: " + item + " | Buffer size: " + count);
+                    }
+                    notifyAll(); // Notify consumers that an item is available
+                } else if (verbose) {
+                    System.out.println("Buffer is full. Item handled by " + overflowPolicy + ": " + item);
+                }
+                toFinish = takeCompletions();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+        finishAll(toFinish);
+        if (runInCaller != null) {
+            runInCaller.accept(item);
         }
-        buffer.add(item);
-        System.out.println("Item added: " + item + " | Buffer size: " + buffer.size());
-        notifyAll(); // Notify consumers that an item is available
+    }
+
+    /**
+     * Waits until the buffer has space for another item.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param sample the lock profiling sample of the current operation, or null.
+     * @param timeoutNanos the maximum time to wait, or a negative value to wait indefinitely.
+     * @return true if space is available, false if the timeout elapsed first.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private boolean awaitSpace(LockProfiler.Sample sample, long timeoutNanos) throws InterruptedException {
+        if (timeoutNanos == 0 && count >= maxSize) {
+            return false; // Non-blocking callers need neither a deadline nor an event
+        }
+        boolean timed = timeoutNanos >= 0;
+        long deadline = System.nanoTime() + timeoutNanos;
+        BufferFullWait fullWait = new BufferFullWait();
+        fullWait.begin();
+        while (count >= maxSize) {
+            long remaining = deadline - System.nanoTime();
+            if (timed && remaining <= 0) {
+                commit(fullWait, 0);
+                return false;
+            }
+            if (verbose) {
+                System.out.println("Buffer is full. Producer is waiting...");
+            }
+            if (sample != null) {
+                sample.waiting();
+            }
+            if (timed) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } else {
+                wait(); // Wait until space is available
+            }
+            if (sample != null) {
+                // A timed wait that simply ran out is not a useless wakeup
+                sample.wokeUp(count >= maxSize && (!timed || deadline - System.nanoTime() > 0));
+            }
+        }
+        commit(fullWait, 1);
+        return true;
     }
 
     /**
      * Removes an item from the buffer.
-     * Blocks if the buffer is empty until an item becomes available.
+     * Blocks if the buffer is empty until an item becomes available. Items whose time-to-live
+     * has passed are dropped rather than returned.
+     * If an asynchronous adder is pending, its item takes the freed slot.
      *
      * @return the item removed from the buffer.
      * @throws InterruptedException if the thread is interrupted while waiting.
      */
-    public synchronized int removeItem() throws InterruptedException {
-        while (buffer.isEmpty()) {
-            System.out.println("Buffer is empty. Consumer is waiting...");
-            wait(); // Wait until an item is available
+    @Override
+    public int removeItem() throws InterruptedException {
+        int item;
+        List<Runnable> toFinish;
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                awaitItem(sample, -1);
+                item = dequeue();
+                admitAddWaiters();
+                if (verbose) {
+                    System.out.println("Item removed: " + item + " | Buffer size: " + count);
+                }
+                notifyAll(); // Notify producers that space is available
+                toFinish = takeCompletions();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
         }
-        int item = buffer.poll();
-        System.out.println("Item removed: " + item + " | Buffer size: " + buffer.size());
-        notifyAll(); // Notify producers that space is available
+        finishAll(toFinish);
         return item;
     }
 
     /**
-     * Gets the current size of the buffer.
+     * Waits until the buffer holds an item, dropping expired items on the way.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param sample the lock profiling sample of the current operation, or null.
+     * @param timeoutNanos the maximum time to wait, or a negative value to wait indefinitely.
+     * @return true if an item is available, false if the timeout elapsed first.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private boolean awaitItem(LockProfiler.Sample sample, long timeoutNanos) throws InterruptedException {
+        expire();
+        if (count > 0) {
+            return true;
+        }
+        if (timeoutNanos == 0) {
+            return false; // Non-blocking callers need neither a deadline nor an event
+        }
+        boolean timed = timeoutNanos >= 0;
+        long deadline = System.nanoTime() + timeoutNanos;
+        BufferEmptyWait emptyWait = new BufferEmptyWait();
+        emptyWait.begin();
+        while (count == 0) {
+            long remaining = deadline - System.nanoTime();
+            if (timed && remaining <= 0) {
+                commit(emptyWait, 0);
+                return false;
+            }
+            if (verbose) {
+                System.out.println("Buffer is empty. Consumer is waiting...");
+            }
+            if (sample != null) {
+                sample.waiting();
+            }
+            if (timed) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } else {
+                wait(); // Wait until an item is available
+            }
+            expire();
+            if (sample != null) {
+                // A timed wait that simply ran out is not a useless wakeup
+                sample.wokeUp(count == 0 && (!timed || deadline - System.nanoTime() > 0));
+            }
+        }
+        commit(emptyWait, 1);
+        return true;
+    }
+
+    /**
+     * Adds an item if the buffer has space right now, without waiting and without applying the
+     * overflow policy. A buffer that is visibly full is reported without entering the monitor.
+     *
+     * @param item the item to add to the buffer.
+     * @return true if the item was added (or handed to a pending remover), false if the buffer is full.
+     */
+    @Override
+    public boolean tryAdd(int item) {
+        if (count >= maxSize && itemTtlNanos == 0) {
+            return false; // Full, and no expired items can free a slot; a full buffer has no pending removers
+        }
+        try {
+            return offer(item, 0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Cannot happen without waiting; keep the flag anyway
+            return false;
+        }
+    }
+
+    /**
+     * Adds an item, waiting at most the given time for space to become available.
+     * The overflow policy is not applied: the item is either added or the call returns false.
+     * The deadline is tracked with {@link System#nanoTime()}, so spurious wakeups do not extend it.
+     *
+     * @param item the item to add to the buffer.
+     * @param timeout the maximum time to wait for space.
+     * @param unit the unit of the timeout argument.
+     * @return true if the item was added (or handed to a pending remover), false if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException {
+        boolean added = true;
+        List<Runnable> toFinish;
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                if (count >= maxSize) {
+                    expire();
+                }
+                if (count >= maxSize && !awaitSpace(sample, Math.max(0, unit.toNanos(timeout)))) {
+                    added = false;
+                } else {
+                    deliver(item);
+                    if (verbose) {
+                        System.out.println("Item added: " + item + " | Buffer size: " + count);
+                    }
+                    notifyAll(); // Notify consumers that an item is available
+                }
+                toFinish = takeCompletions();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+        finishAll(toFinish);
+        return added;
+    }
+
+    /**
+     * Removes an item if one is available right now, without waiting.
+     * An empty buffer is reported without entering the monitor.
+     *
+     * @return the item removed from the buffer, or null if the buffer is empty.
+     */
+    @Override
+    public Integer tryRemove() {
+        if (count == 0) {
+            return null;
+        }
+        try {
+            return poll(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Cannot happen without waiting; keep the flag anyway
+            return null;
+        }
+    }
+
+    /**
+     * Removes an item, waiting at most the given time for one to become available.
+     * The deadline is tracked with {@link System#nanoTime()}, so spurious wakeups do not extend it.
+     *
+     * @param timeout the maximum time to wait for an item.
+     * @param unit the unit of the timeout argument.
+     * @return the item removed from the buffer, or null if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public Integer poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Integer item = null;
+        List<Runnable> toFinish;
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                if (awaitItem(sample, Math.max(0, unit.toNanos(timeout)))) {
+                    item = dequeue();
+                    admitAddWaiters();
+                    if (verbose) {
+                        System.out.println("Item removed: " + item + " | Buffer size: " + count);
+                    }
+                    notifyAll(); // Notify producers that space is available
+                }
+                toFinish = takeCompletions();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+        finishAll(toFinish);
+        return item;
+    }
+
+    /**
+     * Removes up to {@code maxItems} items from the buffer into {@code dest}.
+     * Blocks if the buffer is empty until at least one item becomes available.
+     *
+     * @param dest the array that receives the removed items.
+     * @param offset the index in {@code dest} at which to store the first item.
+     * @param maxItems the maximum number of items to remove.
+     * @return the number of items removed (at least 1).
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public int drainTo(int[] dest, int offset, int maxItems) throws InterruptedException {
+        return drainTo(dest, offset, maxItems, false, 0L);
+    }
+
+    /**
+     * Removes up to {@code maxItems} items from the buffer into {@code dest}.
+     * If the buffer is empty, waits at most the given time for an item to become available;
+     * the wait is a single timed wait on the buffer's monitor that is woken by the next add.
+     *
+     * @param dest the array that receives the removed items.
+     * @param offset the index in {@code dest} at which to store the first item.
+     * @param maxItems the maximum number of items to remove.
+     * @param timeout the maximum time to wait for the first item.
+     * @param unit the unit of the timeout argument.
+     * @return the number of items removed, or 0 if the timeout elapsed while the buffer was empty.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public int drainTo(int[] dest, int offset, int maxItems, long timeout, TimeUnit unit) throws InterruptedException {
+        return drainTo(dest, offset, maxItems, true, unit.toNanos(timeout));
+    }
+
+    private int drainTo(int[] dest, int offset, int maxItems, boolean timed, long timeoutNanos)
+            throws InterruptedException {
+        if (maxItems < 1 || offset < 0 || offset + maxItems > dest.length) {
+            throw new IllegalArgumentException("Invalid drain range: offset=" + offset + ", maxItems=" + maxItems);
+        }
+        int drainedCount = 0;
+        List<Runnable> toFinish;
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                long deadline = System.nanoTime() + timeoutNanos;
+                BufferEmptyWait emptyWait = null;
+                expire();
+                while (count == 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (timed && remaining <= 0) {
+                        break;
+                    }
+                    if (emptyWait == null) {
+                        emptyWait = new BufferEmptyWait();
+                        emptyWait.begin();
+                    }
+                    if (sample != null) {
+                        sample.waiting();
+                    }
+                    if (timed) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } else {
+                        wait();
+                    }
+                    expire();
+                    if (sample != null) {
+                        // A timed wait that simply ran out is not a useless wakeup
+                        sample.wokeUp(count == 0 && (!timed || deadline - System.nanoTime() > 0));
+                    }
+                }
+                while (drainedCount < maxItems && count > 0) {
+                    dest[offset + drainedCount++] = dequeue();
+                    admitAddWaiters();
+                }
+                if (emptyWait != null) {
+                    commit(emptyWait, drainedCount);
+                }
+                if (drainedCount > 0) {
+                    BatchDrained drained = new BatchDrained();
+                    if (drained.isEnabled()) {
+                        drained.bufferName = name;
+                        drained.depth = count;
+                        drained.capacity = maxSize;
+                        drained.itemCount = drainedCount;
+                        drained.commit();
+                    }
+                    if (verbose) {
+                        System.out.println("Items removed: " + drainedCount + " | Buffer size: " + count);
+                    }
+                    notifyAll(); // Notify producers that space is available
+                }
+                toFinish = takeCompletions();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+        finishAll(toFinish);
+        return drainedCount;
+    }
+
+    /**
+     * Adds an item to the buffer without blocking the calling thread.
+     * The returned future is already complete if the item could be added (or handed to a pending
+     * remover) immediately. If the buffer is full, the overflow policy applies: under BLOCK and
+     * BLOCK_WITH_TIMEOUT the future completes once a remove frees a slot for the item (failing with
+     * a {@link java.util.concurrent.TimeoutException} after the block timeout for the latter),
+     * under REJECT it fails with an {@link IllegalStateException}, and the other policies complete
+     * it after dropping an item or running the caller-runs handler.
+     * Cancelling the future, or timing it out with {@code orTimeout}, withdraws the item
+     * unless it has already been accepted.
+     *
+     * @param item the item to add to the buffer.
+     * @return a future that completes when the item has been accepted by the buffer.
+     */
+    public CompletableFuture<Void> addAsync(int item) {
+        Waiter<Void> waiter = null;
+        IntConsumer runInCaller = null;
+        boolean rejected = false;
+        long waiterTimeoutNanos = -1;
+        List<Runnable> toFinish;
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                if (count >= maxSize) {
+                    expire();
+                }
+                boolean accept = true;
+                if (count >= maxSize) {
+                    overflowCounts[overflowPolicy.ordinal()]++;
+                    switch (overflowPolicy) {
+                        case BLOCK:
+                        case BLOCK_WITH_TIMEOUT:
+                            if (overflowPolicy == OverflowPolicy.BLOCK_WITH_TIMEOUT) {
+                                waiterTimeoutNanos = blockTimeoutNanos;
+                            }
+                            waiter = new Waiter<>(addWaiters, item);
+                            addWaiters.add(waiter);
+                            accept = false;
+                            break;
+                        case REJECT:
+                            rejected = true;
+                            accept = false;
+                            break;
+                        case DROP_NEWEST:
+                            accept = false;
+                            break;
+                        case DROP_OLDEST:
+                            // A buffer that was shrunk below its depth sheds the excess as well
+                            while (count >= maxSize) {
+                                dequeue();
+                            }
+                            break;
+                        case CALLER_RUNS:
+                            runInCaller = callerRunsHandler;
+                            accept = false;
+                            break;
+                        default:
+                            throw new IllegalStateException("Unknown overflow policy: " + overflowPolicy);
+                    }
+                }
+                if (accept) {
+                    deliver(item);
+                    notifyAll();
+                }
+                toFinish = takeCompletions();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+        finishAll(toFinish);
+        if (waiter != null) {
+            if (waiterTimeoutNanos >= 0) {
+                waiter.orTimeout(waiterTimeoutNanos, TimeUnit.NANOSECONDS);
+            }
+            return waiter;
+        }
+        if (rejected) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Buffer is full: rejected item " + item));
+        }
+        if (runInCaller != null) {
+            try {
+                runInCaller.accept(item);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Removes an item from the buffer without blocking the calling thread.
+     * The returned future is already complete if an item was available; otherwise it completes
+     * with the next item added to the buffer. Cancelling the future, or timing it out with
+     * {@code orTimeout}, withdraws the request unless an item has already been assigned to it.
+     *
+     * @return a future that completes with the removed item.
+     */
+    public CompletableFuture<Integer> removeAsync() {
+        int item = 0;
+        Waiter<Integer> waiter = null;
+        List<Runnable> toFinish;
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                expire();
+                if (count == 0) {
+                    waiter = new Waiter<>(removeWaiters, 0);
+                    removeWaiters.add(waiter);
+                } else {
+                    item = dequeue();
+                    admitAddWaiters();
+                    notifyAll();
+                }
+                toFinish = takeCompletions();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+        finishAll(toFinish);
+        if (waiter != null) {
+            return waiter;
+        }
+        return CompletableFuture.completedFuture(item);
+    }
+
+    /**
+     * Appends an item to the ring, growing the arrays if the capacity was raised by a resize.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param item the item to append.
+     */
+    private void enqueue(int item) {
+        if (count == items.length) {
+            reallocate(Math.max(maxSize, count + 1));
+        }
+        int tail = (head + count) % items.length;
+        items[tail] = item;
+        enqueuedAt[tail] = itemTtlNanos > 0 ? System.nanoTime() : 0;
+        count++;
+    }
+
+    /**
+     * Removes the oldest item from the ring.
+     * Must be called while holding the buffer's monitor and only when the buffer is not empty.
+     *
+     * @return the removed item.
+     */
+    private int dequeue() {
+        int item = items[head];
+        head = (head + 1) % items.length;
+        count--;
+        removedCount++;
+        return item;
+    }
+
+    private void reallocate(int capacity) {
+        int[] newItems = new int[capacity];
+        long[] newEnqueuedAt = new long[capacity];
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % items.length;
+            newItems[i] = items[index];
+            newEnqueuedAt[i] = enqueuedAt[index];
+        }
+        items = newItems;
+        enqueuedAt = newEnqueuedAt;
+        head = 0;
+    }
+
+    /**
+     * Drops items whose time-to-live has passed. Since all items share the same TTL and are
+     * timestamped in queue order, expired items are always at the head of the queue.
+     * Freed slots are handed to pending asynchronous adders and blocked producers are woken.
+     * Must be called while holding the buffer's monitor.
+     */
+    private void expire() {
+        if (itemTtlNanos <= 0 || count == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        int expired = 0;
+        // Items added before the TTL was set carry no timestamp and never expire
+        while (count > 0 && enqueuedAt[head] != 0 && now - enqueuedAt[head] >= itemTtlNanos) {
+            dequeue();
+            expired++;
+        }
+        if (expired > 0) {
+            expiredCount += expired;
+            if (verbose) {
+                System.out.println("Expired items dropped: " + expired + " | Buffer size: " + count);
+            }
+            admitAddWaiters();
+            notifyAll(); // Notify producers that space is available
+        }
+    }
+
+    /**
+     * Claims the oldest pending asynchronous remover that has not been cancelled.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @return the claimed waiter, or null if none is pending.
+     */
+    private Waiter<Integer> claimRemoveWaiter() {
+        Waiter<Integer> waiter;
+        while ((waiter = removeWaiters.poll()) != null) {
+            if (waiter.claim()) {
+                removedCount++;
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves the items of live asynchronous adders into free slots, oldest first.
+     * The admitted waiters are completed by {@link #finishAll(List)} after the monitor is released.
+     * Must be called while holding the buffer's monitor.
+     */
+    private void admitAddWaiters() {
+        Waiter<Void> waiter;
+        while (count < maxSize && (waiter = addWaiters.poll()) != null) {
+            if (waiter.claim()) {
+                deliver(waiter.item);
+                Waiter<Void> admittedWaiter = waiter;
+                completeLater(() -> admittedWaiter.finish(null));
+            }
+        }
+    }
+
+    /**
+     * Hands an item to the oldest pending asynchronous remover, or appends it to the ring if none
+     * is pending. Every path that adds an item goes through here, so a remover that was queued
+     * while a producer waited for space is served by that producer's item.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param item the item to add.
+     */
+    private void deliver(int item) {
+        Waiter<Integer> remover = claimRemoveWaiter();
+        if (remover == null) {
+            enqueue(item);
+        } else {
+            completeLater(() -> remover.finish(item));
+        }
+    }
+
+    /**
+     * Schedules the completion of an asynchronous operation for when the monitor is released,
+     * so that callbacks attached to its future do not run while the monitor is held.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param completion the completion to run.
+     */
+    private void completeLater(Runnable completion) {
+        if (completions == null) {
+            completions = new ArrayList<>();
+        }
+        completions.add(completion);
+    }
+
+    /**
+     * Takes the completions scheduled so far, so they can be run outside the monitor.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @return the completions, or null if there are none.
+     */
+    private List<Runnable> takeCompletions() {
+        List<Runnable> taken = completions;
+        completions = null;
+        return taken;
+    }
+
+    private static void finishAll(List<Runnable> completions) {
+        if (completions != null) {
+            for (Runnable completion : completions) {
+                completion.run();
+            }
+        }
+    }
+
+    /**
+     * Enables or disables echoing every buffer operation to the console.
+     * Logging is on by default; benchmarks turn it off so console I/O does not dominate the results.
+     *
+     * @param verbose true to log every operation, false to stay silent.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Sets what happens when an item is added to a full buffer.
+     *
+     * @param policy the overflow policy.
+     * @throws IllegalStateException if the policy is CALLER_RUNS and no caller-runs handler is set.
+     */
+    public synchronized void setOverflowPolicy(OverflowPolicy policy) {
+        if (policy == OverflowPolicy.CALLER_RUNS && callerRunsHandler == null) {
+            throw new IllegalStateException("CALLER_RUNS requires a caller-runs handler.");
+        }
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * Gets the current overflow policy.
+     *
+     * @return the overflow policy.
+     */
+    public synchronized OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets how long the BLOCK_WITH_TIMEOUT policy waits for space before rejecting an item.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout argument.
+     */
+    public synchronized void setBlockTimeout(long timeout, TimeUnit unit) {
+        this.blockTimeoutNanos = Math.max(0, unit.toNanos(timeout));
+    }
+
+    /**
+     * Sets the handler that processes items in the producer's thread under the CALLER_RUNS policy.
+     *
+     * @param handler the handler that receives items that did not fit into the buffer.
+     */
+    public synchronized void setCallerRunsHandler(IntConsumer handler) {
+        this.callerRunsHandler = handler;
+    }
+
+    /**
+     * Sets the time-to-live of items added from now on. Items that have been queued longer are
+     * dropped when they reach the head of the queue, or by the expiry sweeper, and are never
+     * returned to consumers.
+     *
+     * @param ttl the time-to-live, or 0 to keep items indefinitely.
+     * @param unit the unit of the ttl argument.
+     */
+    public synchronized void setItemTimeToLive(long ttl, TimeUnit unit) {
+        this.itemTtlNanos = Math.max(0, unit.toNanos(ttl));
+    }
+
+    /**
+     * Starts periodically dropping expired items, so that their slots are freed for producers even
+     * while no consumer is removing items. The sweep only inspects the head of the queue.
+     *
+     * @param period the time between sweeps.
+     * @param unit the unit of the period argument.
+     * @return the scheduled sweep, which can be cancelled to stop sweeping.
+     */
+    public ScheduledFuture<?> startExpirySweeper(long period, TimeUnit unit) {
+        return Sweeper.SCHEDULER.scheduleAtFixedRate(this::sweep, period, period, unit);
+    }
+
+    private void sweep() {
+        List<Runnable> toFinish;
+        synchronized (this) {
+            expire();
+            toFinish = takeCompletions();
+        }
+        finishAll(toFinish);
+    }
+
+    /**
+     * Gets how often an add found the buffer full and was handled by the given policy.
+     *
+     * @param policy the overflow policy.
+     * @return the number of adds handled by the policy.
+     */
+    public synchronized long getOverflowCount(OverflowPolicy policy) {
+        return overflowCounts[policy.ordinal()];
+    }
+
+    /**
+     * Gets the number of items dropped because their time-to-live passed.
+     *
+     * @return the number of expired items.
+     */
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * Gets the number of items that have left the buffer: removed, drained, handed directly to
+     * an asynchronous remover, dropped or expired. Does not enter the buffer's monitor.
+     *
+     * @return the number of removed items.
+     */
+    public long getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Gets the name of the buffer.
+     *
+     * @return the buffer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the lock profiler sampling this buffer's monitor.
+     *
+     * @return the profiler, or null if lock profiling was not enabled when the buffer was created.
+     */
+    public LockProfiler getLockProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Gets the current size of the buffer. Does not enter the buffer's monitor, so it can be
+     * called by monitoring threads even while the monitor is held indefinitely.
      *
      * @return the number of items currently in the buffer.
      */
-    public synchronized int getSize() {
-        return buffer.size();
+    @Override
+    public int getSize() {
+        return count;
     }
 
     /**
@@ -75,7 +955,7 @@ public class ConfigurableBuffer {
      * @return true if the buffer is full, false otherwise.
      */
     public synchronized boolean isFull() {
-        return buffer.size() == maxSize;
+        return count >= maxSize;
     }
 
     /**
@@ -84,6 +964,151 @@ public class ConfigurableBuffer {
      * @return true if the buffer is empty, false otherwise.
      */
     public synchronized boolean isEmpty() {
-        return buffer.isEmpty();
+        return count == 0;
+    }
+
+    /**
+     * Gets the maximum number of items the buffer can hold. Does not enter the buffer's monitor.
+     *
+     * @return the current capacity.
+     */
+    public int getCapacity() {
+        return maxSize;
+    }
+
+    /**
+     * Changes the maximum number of items the buffer can hold.
+     * Growing the buffer immediately admits pending asynchronous adds and wakes blocked producers.
+     * Shrinking it below the current size keeps the queued items; producers block until consumers
+     * have brought the size below the new capacity.
+     *
+     * @param newMaxSize the new maximum number of items.
+     * @throws IllegalArgumentException if newMaxSize is less than 1.
+     */
+    public void resize(int newMaxSize) {
+        if (newMaxSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1.");
+        }
+        List<Runnable> toFinish;
+        synchronized (this) {
+            int previousMaxSize = maxSize;
+            maxSize = newMaxSize;
+            if (newMaxSize > items.length) {
+                reallocate(newMaxSize);
+            }
+            admitAddWaiters();
+            BufferResized resized = new BufferResized();
+            if (resized.isEnabled()) {
+                resized.bufferName = name;
+                resized.depth = count;
+                resized.capacity = newMaxSize;
+                resized.previousCapacity = previousMaxSize;
+                resized.commit();
+            }
+            if (verbose) {
+                System.out.println("Buffer resized: " + previousMaxSize + " -> " + newMaxSize);
+            }
+            notifyAll(); // Producers may fit into the new capacity
+            toFinish = takeCompletions();
+        }
+        finishAll(toFinish);
+    }
+
+    /**
+     * Ends a wait event and commits it if it exceeded the recording's threshold.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param event the wait event started when the operation first had to wait.
+     * @param itemCount the number of items the waiting operation moved.
+     */
+    private void commit(BufferFullWait event, int itemCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.bufferName = name;
+            event.depth = count;
+            event.capacity = maxSize;
+            event.itemCount = itemCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Ends a wait event and commits it if it exceeded the recording's threshold.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param event the wait event started when the operation first had to wait.
+     * @param itemCount the number of items the waiting operation moved.
+     */
+    private void commit(BufferEmptyWait event, int itemCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.bufferName = name;
+            event.depth = count;
+            event.capacity = maxSize;
+            event.itemCount = itemCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Lazily started daemon thread shared by the expiry sweepers of all buffers.
+     */
+    private static final class Sweeper {
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ConfigurableBuffer-Sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A pending asynchronous add or remove.
+     * The buffer and the caller race to settle a waiter: the buffer claims it before transferring
+     * an item, the caller claims it when cancelling or completing it exceptionally (e.g. on timeout).
+     * Whoever claims first wins, so an item is never lost or duplicated by a late cancellation.
+     *
+     * @param <T> the result type of the operation.
+     */
+    private static final class Waiter<T> extends CompletableFuture<T> {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final Queue<Waiter<T>> queue;
+        private final int item;
+
+        Waiter(Queue<Waiter<T>> queue, int item) {
+            this.queue = queue;
+            this.item = item;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void finish(T value) {
+            super.complete(value);
+        }
+
+        @Override
+        public boolean complete(T value) {
+            // Callers may not complete a pending add or remove on the buffer's behalf
+            return false;
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable ex) {
+            if (!claim()) {
+                return false;
+            }
+            queue.remove(this);
+            return super.completeExceptionally(ex);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!claim()) {
+                return false;
+            }
+            queue.remove(this);
+            return super.cancel(mayInterruptIfRunning);
+        }
     }
 }
@@ -0,0 +1,156 @@
+package buffer;
+
+import util.IntIntMap;
+
+/**
+ * A bounded buffer for state-update streams in which only the newest value per key matters.
+ * Adding a value for a key that is already queued replaces the pending value in place, keeping
+ * the key's position in the queue, instead of queueing another item. The buffer therefore holds
+ * at most one entry per distinct key, and producers only block when more distinct keys are
+ * pending than the buffer has room for.
+ */
+public class ConflatingBuffer implements ItemBuffer {
+    private final String name;
+    private final int[] keys;   // Ring of queued keys
+    private final int[] values; // Latest value of the key in the same slot
+    private final IntIntMap slotByKey;
+    private int head;
+    private int count;
+    private long addedCount;
+    private long conflatedCount;
+
+    /**
+     * Constructs a ConflatingBuffer.
+     *
+     * @param name the name of the buffer (used in diagnostics).
+     * @param maxKeys the maximum number of distinct keys that can be pending at once.
+     * @throws IllegalArgumentException if maxKeys is less than 1.
+     */
+    public ConflatingBuffer(String name, int maxKeys) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1.");
+        }
+        this.name = name;
+        this.keys = new int[maxKeys];
+        this.values = new int[maxKeys];
+        this.slotByKey = new IntIntMap(maxKeys);
+    }
+
+    /**
+     * Adds the latest value for a key.
+     * If the key is already queued its pending value is replaced and the call returns immediately;
+     * otherwise the key is queued, blocking while the buffer is full.
+     *
+     * @param key the key the value belongs to.
+     * @param value the new value.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized void addItem(int key, int value) throws InterruptedException {
+        while (true) {
+            int slot = slotByKey.get(key, -1);
+            if (slot >= 0) {
+                values[slot] = value;
+                conflatedCount++;
+                return;
+            }
+            if (count < keys.length) {
+                break;
+            }
+            wait(); // Wait until space is available (or the key is queued by another producer)
+        }
+        int slot = (head + count) % keys.length;
+        keys[slot] = key;
+        values[slot] = value;
+        slotByKey.put(key, slot);
+        count++;
+        addedCount++;
+        notifyAll(); // Notify consumers that an item is available
+    }
+
+    /**
+     * Adds an item that is its own key, so repeated equal items are conflated.
+     *
+     * @param item the item to add to the buffer.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public void addItem(int item) throws InterruptedException {
+        addItem(item, item);
+    }
+
+    /**
+     * Removes the oldest pending key and returns its latest value.
+     * Blocks if the buffer is empty until an item becomes available.
+     *
+     * @return the latest value of the removed key.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public synchronized int removeItem() throws InterruptedException {
+        while (count == 0) {
+            wait(); // Wait until an item is available
+        }
+        return poll();
+    }
+
+    /**
+     * Removes the oldest pending key together with its latest value.
+     * Blocks if the buffer is empty until an item becomes available.
+     *
+     * @param entry an array of at least two elements that receives the key (index 0) and value (index 1).
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized void removeEntry(int[] entry) throws InterruptedException {
+        while (count == 0) {
+            wait(); // Wait until an item is available
+        }
+        entry[0] = keys[head];
+        entry[1] = poll();
+    }
+
+    private int poll() {
+        int value = values[head];
+        slotByKey.remove(keys[head]);
+        head = (head + 1) % keys.length;
+        count--;
+        notifyAll(); // Notify producers that space is available
+        return value;
+    }
+
+    /**
+     * Gets the name of the buffer.
+     *
+     * @return the buffer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of pending keys.
+     *
+     * @return the number of items currently in the buffer.
+     */
+    @Override
+    public synchronized int getSize() {
+        return count;
+    }
+
+    /**
+     * Gets the number of values that were queued as a new entry.
+     *
+     * @return the number of non-conflated adds.
+     */
+    public synchronized long getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * Gets the number of values that replaced a pending value of the same key.
+     *
+     * @return the number of conflated updates.
+     */
+    public synchronized long getConflatedCount() {
+        return conflatedCount;
+    }
+}
@@ -0,0 +1,431 @@
+package buffer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import util.IntIntMap;
+import util.TimingWheel;
+
+/**
+ * Delivers items into a buffer after a delay, and retries failed items with exponential backoff.
+ * <p>
+ * Pending items are held in a {@link TimingWheel}, so scheduling and cancelling take constant
+ * time even with millions of pending items. A single ticker thread, started with the first
+ * scheduled item, advances the wheel and adds due items to the target buffer. Delivery uses
+ * {@link TimedItemBuffer#tryAdd(int)}, so a full target never blocks the ticker: the item is
+ * parked in a backlog instead. The backlog is retried once the buffer has made room, or after a
+ * backoff that doubles up to {@value #MAX_RETRY_TICKS} ticks, and a retry stops at the first item
+ * that still does not fit, so a buffer that stays full costs almost nothing per tick. Items that
+ * become due while their buffer has a backlog queue up behind it, keeping their order.
+ * <p>
+ * An item that keeps failing is moved to the dead-letter buffer once it has used up its
+ * attempts. Attempts are tracked by item value, so retried items should be unique (for example
+ * sequence numbers), and {@link #complete(int)} should be called once a retried item has been
+ * processed successfully.
+ */
+public class DelayedDelivery implements AutoCloseable {
+    private static final int TO_TARGET = 0;
+    private static final int TO_DEAD_LETTERS = 1;
+    private static final int MAX_RETRY_TICKS = 64;
+
+    private final String name;
+    private final TimedItemBuffer target;
+    private final TimedItemBuffer deadLetters;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+
+    // Guarded by this object's monitor
+    private final TimingWheel wheel = new TimingWheel(1024);
+    private final IntIntMap attempts = new IntIntMap(16);
+    private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(30);
+    private int maxAttempts = 5;
+    private Thread ticker;
+    private boolean closed;
+    private long deliveredCount;
+    private long deferredCount;
+    private long deadLetterCount;
+    private int parkedCount; // Items in the backlogs, for getPendingCount
+
+    // Items that became due during the last ticks, owned by the ticker thread
+    private int[] dueItems = new int[256];
+    private int[] dueTags = new int[256];
+    private int dueCount;
+
+    // Due items waiting for room in their buffer, owned by the ticker thread
+    private final Backlog targetBacklog = new Backlog();
+    private final Backlog deadLetterBacklog = new Backlog();
+
+    /**
+     * Constructs a delayed delivery facility.
+     *
+     * @param name the name of the facility (used for the ticker thread).
+     * @param target the buffer that receives due items.
+     * @param deadLetters the buffer that receives items that used up their attempts.
+     * @param tick the resolution of the timer; delays are rounded up to whole ticks.
+     * @param unit the unit of the tick argument.
+     * @throws IllegalArgumentException if tick is not positive.
+     */
+    public DelayedDelivery(String name, TimedItemBuffer target, TimedItemBuffer deadLetters, long tick, TimeUnit unit) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick must be positive.");
+        }
+        this.name = name;
+        this.target = target;
+        this.deadLetters = deadLetters;
+        this.tickNanos = unit.toNanos(tick);
+    }
+
+    /**
+     * Configures how failed items are retried. The n-th retry of an item is delayed by
+     * {@code initialBackoff * 2^(n-1)}, capped at {@code maxBackoff}.
+     *
+     * @param initialBackoff the delay before the first retry.
+     * @param maxBackoff the maximum delay between two attempts.
+     * @param unit the unit of the backoff arguments.
+     * @param maxAttempts the number of failed attempts after which an item is dead-lettered.
+     * @throws IllegalArgumentException if a backoff is negative, initialBackoff exceeds maxBackoff,
+     *                                  or maxAttempts is less than 1.
+     */
+    public synchronized void setRetryPolicy(long initialBackoff, long maxBackoff, TimeUnit unit, int maxAttempts) {
+        if (initialBackoff < 0 || initialBackoff > maxBackoff) {
+            throw new IllegalArgumentException("Backoff must satisfy 0 <= initial <= max.");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be at least 1.");
+        }
+        this.initialBackoffNanos = unit.toNanos(initialBackoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Schedules an item to be added to the target buffer after a delay.
+     *
+     * @param item the item to deliver.
+     * @param delay the minimum time before the item is delivered.
+     * @param unit the unit of the delay argument.
+     * @return a handle that can be passed to {@link #cancel(long)}.
+     * @throws IllegalStateException if the facility has been closed.
+     */
+    public synchronized long schedule(int item, long delay, TimeUnit unit) {
+        return add(item, TO_TARGET, unit.toNanos(delay));
+    }
+
+    /**
+     * Cancels a scheduled item that is not yet due.
+     *
+     * @param handle the handle returned by {@link #schedule}.
+     * @return true if the item was cancelled, false if it was already due or cancelled.
+     */
+    public synchronized boolean cancel(long handle) {
+        return wheel.cancel(handle);
+    }
+
+    /**
+     * Records a failed attempt to process an item and schedules its next attempt with backoff,
+     * or moves it to the dead-letter buffer if it has used up its attempts.
+     *
+     * @param item the item that failed.
+     * @return true if the item will be retried, false if it was dead-lettered.
+     * @throws IllegalStateException if the facility has been closed.
+     */
+    public synchronized boolean retry(int item) {
+        int failed = attempts.get(item, 0) + 1;
+        if (failed >= maxAttempts) {
+            attempts.remove(item);
+            add(item, TO_DEAD_LETTERS, 0);
+            return false;
+        }
+        attempts.put(item, failed);
+        int doublings = Math.min(failed - 1, 62);
+        long backoff = initialBackoffNanos > (maxBackoffNanos >> doublings)
+                ? maxBackoffNanos : initialBackoffNanos << doublings;
+        add(item, TO_TARGET, backoff);
+        return true;
+    }
+
+    /**
+     * Forgets the failed attempts of an item that has now been processed successfully.
+     *
+     * @param item the item that succeeded.
+     */
+    public synchronized void complete(int item) {
+        attempts.remove(item);
+    }
+
+    /**
+     * Gets the number of failed attempts recorded for an item.
+     *
+     * @param item the item.
+     * @return the number of failed attempts, or 0 if none are recorded.
+     */
+    public synchronized int getAttempts(int item) {
+        return attempts.get(item, 0);
+    }
+
+    /**
+     * Gets the number of items waiting for their delivery time or for room in their buffer.
+     *
+     * @return the number of pending items.
+     */
+    public synchronized int getPendingCount() {
+        return wheel.size() + parkedCount;
+    }
+
+    /**
+     * Gets the number of items added to the target buffer.
+     *
+     * @return the number of delivered items.
+     */
+    public synchronized long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    /**
+     * Gets the number of due items that found their buffer full, or its backlog not yet
+     * delivered, and were parked until the buffer made room.
+     *
+     * @return the number of deferred items.
+     */
+    public synchronized long getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * Gets the number of items added to the dead-letter buffer.
+     *
+     * @return the number of dead-lettered items.
+     */
+    public synchronized long getDeadLetterCount() {
+        return deadLetterCount;
+    }
+
+    /**
+     * Stops the ticker. Items that are not yet due are discarded.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll(); // Wake the ticker so it can exit
+    }
+
+    /**
+     * Adds an item to the wheel and starts the ticker if needed.
+     * Must be called while holding this object's monitor.
+     *
+     * @param item the item.
+     * @param tag where the item goes when due.
+     * @param delayNanos the delay before the item is due.
+     * @return the handle of the timer.
+     */
+    private long add(int item, int tag, long delayNanos) {
+        if (closed) {
+            throw new IllegalStateException(name + " has been closed.");
+        }
+        long now = tickOf(System.nanoTime());
+        if (wheel.size() == 0) {
+            wheel.advanceTo(now - 1, null); // Skip the idle period so the wheel starts at the present
+            notifyAll(); // Wake the ticker, which waits while the wheel is empty
+        }
+        // Round the delay up to whole ticks, plus one for the partly elapsed current tick, so items are never early
+        long ticks = delayNanos <= 0 ? 0 : (delayNanos + tickNanos - 1) / tickNanos + 1;
+        if (ticker == null) {
+            ticker = new Thread(this::runTicker, name + "-Ticker");
+            ticker.setDaemon(true);
+            ticker.start();
+        }
+        return wheel.add(now + ticks, item, tag);
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} value into a wheel tick.
+     *
+     * @param nanos the time to convert.
+     * @return the tick containing that time.
+     */
+    private long tickOf(long nanos) {
+        return (nanos - startNanos) / tickNanos;
+    }
+
+    /**
+     * The ticker loop: advances the wheel in step with the clock and delivers due items, and
+     * retries the backlogs when their buffers may have made room.
+     */
+    private void runTicker() {
+        try {
+            while (true) {
+                long now = tickOf(System.nanoTime());
+                boolean retryBacklog = targetBacklog.isReady(target, now) || deadLetterBacklog.isReady(deadLetters, now);
+                synchronized (this) {
+                    while (!closed && wheel.size() == 0 && parkedCount == 0) {
+                        wait(); // Wait until an item is scheduled
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    wheel.advanceTo(tickOf(System.nanoTime()), this::collect);
+                    if (dueCount == 0 && !retryBacklog) {
+                        long nextTick = Math.min(targetBacklog.getRetryTick(), deadLetterBacklog.getRetryTick());
+                        if (wheel.size() > 0) {
+                            nextTick = Math.min(nextTick, wheel.getNextTick());
+                        }
+                        long untilNextTick = startNanos + nextTick * tickNanos - System.nanoTime();
+                        if (untilNextTick > 0) {
+                            TimeUnit.NANOSECONDS.timedWait(this, untilNextTick);
+                        }
+                        continue;
+                    }
+                }
+                deliverDue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collects an item that became due. Called by the wheel on the ticker thread.
+     *
+     * @param item the item.
+     * @param tag where the item goes.
+     */
+    private void collect(int item, int tag) {
+        if (dueCount == dueItems.length) {
+            dueItems = Arrays.copyOf(dueItems, dueCount * 2);
+            dueTags = Arrays.copyOf(dueTags, dueCount * 2);
+        }
+        dueItems[dueCount] = item;
+        dueTags[dueCount++] = tag;
+    }
+
+    /**
+     * Adds the backlogs and then the collected items to their buffers outside the monitor.
+     * Items that do not fit are parked in their buffer's backlog.
+     */
+    private void deliverDue() {
+        long now = tickOf(System.nanoTime());
+        int delivered = targetBacklog.retry(target, now);
+        int deadLettered = deadLetterBacklog.retry(deadLetters, now);
+        int deferred = 0;
+        for (int i = 0; i < dueCount; i++) {
+            boolean dead = dueTags[i] == TO_DEAD_LETTERS;
+            if (dead ? deadLetterBacklog.deliver(dueItems[i], deadLetters, now)
+                    : targetBacklog.deliver(dueItems[i], target, now)) {
+                if (dead) {
+                    deadLettered++;
+                } else {
+                    delivered++;
+                }
+            } else {
+                deferred++;
+            }
+        }
+        dueCount = 0;
+        synchronized (this) {
+            deliveredCount += delivered;
+            deadLetterCount += deadLettered;
+            deferredCount += deferred;
+            parkedCount = targetBacklog.size + deadLetterBacklog.size;
+        }
+    }
+
+    /**
+     * FIFO queue of due items waiting for room in one buffer, with the state that decides when to
+     * retry them. Only used by the ticker thread.
+     */
+    private static final class Backlog {
+        private int[] items = new int[16];
+        private int head;
+        private int size;
+        private int sizeWhenFull; // The buffer's size when an item last did not fit
+        private long retryTick = Long.MAX_VALUE;
+        private int backoffTicks = 1;
+
+        /**
+         * Adds an item to the buffer, or parks it if the buffer is full or the backlog is not
+         * empty, so that the item does not overtake parked ones.
+         *
+         * @param item the item.
+         * @param buffer the buffer.
+         * @param now the current tick.
+         * @return true if the item was added to the buffer, false if it was parked.
+         */
+        boolean deliver(int item, TimedItemBuffer buffer, long now) {
+            if (size == 0 && buffer.tryAdd(item)) {
+                return true;
+            }
+            if (size == 0) {
+                full(buffer, now);
+            }
+            if (size == items.length) {
+                int[] grown = new int[size * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = items[(head + i) % items.length];
+                }
+                items = grown;
+                head = 0;
+            }
+            items[(head + size++) % items.length] = item;
+            return false;
+        }
+
+        /**
+         * Checks whether the backlog should be retried: the buffer has fewer items than when it
+         * was last full, or the backoff has elapsed.
+         *
+         * @param buffer the buffer.
+         * @param now the current tick.
+         * @return true if the backlog holds items and should be retried.
+         */
+        boolean isReady(TimedItemBuffer buffer, long now) {
+            return size > 0 && (now >= retryTick || buffer.getSize() < sizeWhenFull);
+        }
+
+        /**
+         * Adds parked items to the buffer in order, if the backlog is ready, until one does not fit.
+         *
+         * @param buffer the buffer.
+         * @param now the current tick.
+         * @return the number of items added to the buffer.
+         */
+        int retry(TimedItemBuffer buffer, long now) {
+            if (!isReady(buffer, now)) {
+                return 0;
+            }
+            int added = 0;
+            while (size > 0 && buffer.tryAdd(items[head])) {
+                head = (head + 1) % items.length;
+                size--;
+                added++;
+            }
+            // Retry less often while the buffer stays full, and promptly again once it drains
+            backoffTicks = added == 0 ? Math.min(backoffTicks * 2, MAX_RETRY_TICKS) : 1;
+            if (size == 0) {
+                retryTick = Long.MAX_VALUE;
+            } else {
+                full(buffer, now);
+            }
+            return added;
+        }
+
+        /**
+         * Gets the tick at which the backlog is retried even if the buffer has not made room.
+         *
+         * @return the retry tick, or {@link Long#MAX_VALUE} if the backlog is empty.
+         */
+        long getRetryTick() {
+            return retryTick;
+        }
+
+        /**
+         * Records that the buffer is full and schedules the next retry.
+         *
+         * @param buffer the buffer.
+         * @param now the current tick.
+         */
+        private void full(TimedItemBuffer buffer, long now) {
+            sizeWhenFull = buffer.getSize();
+            retryTick = now + backoffTicks;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package buffer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An elimination-backoff layer in front of a bounded buffer.
+ * <p>
+ * An add and a remove that arrive at the same time cancel each other out: the item can go
+ * straight from the producer to the consumer, and the central buffer never needs to see it. Each
+ * operation first probes one random slot of a small exchange array for a waiting partner of the
+ * opposite kind. Without one, it goes to the central buffer, unless enough other threads are
+ * already inside the central buffer; in that case it posts an offer in the exchange array and
+ * waits a short window for a partner first. An operation that the central buffer cannot serve
+ * (an add while it is full, a remove while it is empty) also waits in the exchange array, then
+ * waits on the central buffer for a window that doubles up to a cap, and repeats.
+ * <p>
+ * Items that pair off overtake the items queued in the central buffer, so the layer does not
+ * preserve FIFO order. Use it where throughput under contention matters more than ordering.
+ */
+public class EliminatingBuffer implements TimedItemBuffer {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int SPINS = 128; // Spins before parking while an offer waits for a partner
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final TimedItemBuffer central;
+    private final AtomicReferenceArray<Offer> slots;
+    private final int contentionThreshold;
+    private final AtomicInteger inCentral = new AtomicInteger();
+    private final LongAdder eliminatedCount = new LongAdder();
+    private final LongAdder centralCount = new LongAdder();
+
+    /**
+     * Constructs an elimination layer with one exchange slot per available processor.
+     *
+     * @param central the buffer that serves the operations that do not pair off.
+     */
+    public EliminatingBuffer(TimedItemBuffer central) {
+        this(central, Runtime.getRuntime().availableProcessors(), 2);
+    }
+
+    /**
+     * Constructs an elimination layer.
+     *
+     * @param central the buffer that serves the operations that do not pair off.
+     * @param slotCount the number of exchange slots; more slots mean fewer collisions between
+     *                  offers, but a lower chance that a probe finds a partner.
+     * @param contentionThreshold the number of threads inside the central buffer from which new
+     *                            operations try the exchange array first.
+     * @throws IllegalArgumentException if slotCount or contentionThreshold is less than 1.
+     */
+    public EliminatingBuffer(TimedItemBuffer central, int slotCount, int contentionThreshold) {
+        if (slotCount < 1) {
+            throw new IllegalArgumentException("Slot count must be at least 1.");
+        }
+        if (contentionThreshold < 1) {
+            throw new IllegalArgumentException("Contention threshold must be at least 1.");
+        }
+        this.central = central;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.contentionThreshold = contentionThreshold;
+    }
+
+    /**
+     * Adds an item, blocking until a consumer or the central buffer takes it.
+     *
+     * @param item the item to add.
+     * @throws InterruptedException if the thread is interrupted while waiting; the item is then not added.
+     */
+    @Override
+    public void addItem(int item) throws InterruptedException {
+        add(item, -1);
+    }
+
+    /**
+     * Adds an item if a waiting consumer or the central buffer takes it without waiting.
+     *
+     * @param item the item to add.
+     * @return true if the item was added.
+     */
+    @Override
+    public boolean tryAdd(int item) {
+        if (eliminate(Offer.REMOVE, item) != EMPTY) {
+            return true;
+        }
+        return centralAdd(item);
+    }
+
+    /**
+     * Adds an item, waiting at most the given time for a consumer or space in the central buffer.
+     *
+     * @param item the item to add.
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout argument.
+     * @return true if the item was added, false if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException {
+        return add(item, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    /**
+     * Removes an item, blocking until a producer or the central buffer provides one.
+     *
+     * @return the item.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public int removeItem() throws InterruptedException {
+        return (int) remove(-1);
+    }
+
+    /**
+     * Removes an item if a waiting producer or the central buffer provides one without waiting.
+     *
+     * @return the item, or null if none is available.
+     */
+    @Override
+    public Integer tryRemove() {
+        long item = eliminate(Offer.ADD, 0);
+        if (item != EMPTY) {
+            return (int) item;
+        }
+        item = centralRemove();
+        return item == EMPTY ? null : (int) item;
+    }
+
+    /**
+     * Removes an item, waiting at most the given time for a producer or an item in the central buffer.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout argument.
+     * @return the item, or null if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public Integer poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long item = remove(Math.max(0, unit.toNanos(timeout)));
+        return item == EMPTY ? null : (int) item;
+    }
+
+    /**
+     * Adds an item through the exchange array or the central buffer.
+     *
+     * @param item the item.
+     * @param timeoutNanos the maximum time to wait, 0 to not wait, or a negative value to wait indefinitely.
+     * @return true if the item was added.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private boolean add(int item, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        long backoff = MIN_BACKOFF_NANOS;
+        while (true) {
+            if (eliminate(Offer.REMOVE, item) != EMPTY) {
+                return true;
+            }
+            if (inCentral.get() < contentionThreshold && centralAdd(item)) {
+                return true;
+            }
+            long window = window(backoff, deadline, timeoutNanos);
+            if (window <= 0) {
+                return timeoutNanos == 0 && centralAdd(item); // A try still gets one central attempt
+            }
+            if (await(new Offer(Offer.ADD, item), window) != EMPTY) {
+                return true;
+            }
+            window = window(backoff, deadline, timeoutNanos);
+            inCentral.incrementAndGet();
+            try {
+                if (central.offer(item, Math.max(0, window), TimeUnit.NANOSECONDS)) {
+                    centralCount.increment();
+                    return true;
+                }
+            } finally {
+                inCentral.decrementAndGet();
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    /**
+     * Removes an item through the exchange array or the central buffer.
+     *
+     * @param timeoutNanos the maximum time to wait, 0 to not wait, or a negative value to wait indefinitely.
+     * @return the item, or {@link #EMPTY} if none was available in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private long remove(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        long backoff = MIN_BACKOFF_NANOS;
+        while (true) {
+            long item = eliminate(Offer.ADD, 0);
+            if (item != EMPTY) {
+                return item;
+            }
+            if (inCentral.get() < contentionThreshold && (item = centralRemove()) != EMPTY) {
+                return item;
+            }
+            long window = window(backoff, deadline, timeoutNanos);
+            if (window <= 0) {
+                return timeoutNanos == 0 ? centralRemove() : EMPTY;
+            }
+            if ((item = await(new Offer(Offer.REMOVE, 0), window)) != EMPTY) {
+                return item;
+            }
+            window = window(backoff, deadline, timeoutNanos);
+            inCentral.incrementAndGet();
+            try {
+                Integer polled = central.poll(Math.max(0, window), TimeUnit.NANOSECONDS);
+                if (polled != null) {
+                    centralCount.increment();
+                    return polled;
+                }
+            } finally {
+                inCentral.decrementAndGet();
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    /**
+     * Computes how long the next wait may take.
+     *
+     * @param backoff the current backoff window.
+     * @param deadline the deadline of the operation.
+     * @param timeoutNanos the timeout of the operation, negative if it has none.
+     * @return the length of the next wait, or a value of at most 0 if the operation timed out.
+     */
+    private static long window(long backoff, long deadline, long timeoutNanos) {
+        return timeoutNanos < 0 ? backoff : Math.min(backoff, deadline - System.nanoTime());
+    }
+
+    /**
+     * Tries a non-blocking add on the central buffer.
+     *
+     * @param item the item.
+     * @return true if the central buffer took the item.
+     */
+    private boolean centralAdd(int item) {
+        inCentral.incrementAndGet();
+        try {
+            if (central.tryAdd(item)) {
+                centralCount.increment();
+                return true;
+            }
+            return false;
+        } finally {
+            inCentral.decrementAndGet();
+        }
+    }
+
+    /**
+     * Tries a non-blocking remove on the central buffer.
+     *
+     * @return the item, or {@link #EMPTY} if the central buffer is empty.
+     */
+    private long centralRemove() {
+        inCentral.incrementAndGet();
+        try {
+            Integer item = central.tryRemove();
+            if (item == null) {
+                return EMPTY;
+            }
+            centralCount.increment();
+            return item;
+        } finally {
+            inCentral.decrementAndGet();
+        }
+    }
+
+    /**
+     * Probes one random exchange slot for a waiting offer of the given kind and completes it.
+     *
+     * @param kind the kind of offer to pair with: {@link Offer#REMOVE} when adding, {@link Offer#ADD} when removing.
+     * @param item the item to hand to a waiting remove offer.
+     * @return the item exchanged (the given one when pairing with a remove offer), or {@link #EMPTY}.
+     */
+    private long eliminate(int kind, int item) {
+        int index = ThreadLocalRandom.current().nextInt(slots.length());
+        Offer offer = slots.get(index);
+        if (offer == null || offer.kind != kind) {
+            return EMPTY;
+        }
+        if (!offer.state.compareAndSet(Offer.WAITING, Offer.CLAIMED)) {
+            return EMPTY; // Withdrawn or taken by another thread
+        }
+        long exchanged;
+        if (kind == Offer.REMOVE) {
+            offer.item = item; // Only read by the owner once the state says MATCHED
+            exchanged = item;
+        } else {
+            exchanged = offer.item;
+        }
+        offer.state.set(Offer.MATCHED);
+        slots.compareAndSet(index, offer, null);
+        LockSupport.unpark(offer.owner);
+        eliminatedCount.increment();
+        return exchanged;
+    }
+
+    /**
+     * Posts an offer in a random free slot and waits for a partner to complete it.
+     *
+     * @param offer the calling thread's offer.
+     * @param windowNanos how long to wait for a partner.
+     * @return the item exchanged, or {@link #EMPTY} if no partner came (or no slot was free).
+     * @throws InterruptedException if the thread is interrupted before a partner completed the offer.
+     */
+    private long await(Offer offer, long windowNanos) throws InterruptedException {
+        int index = ThreadLocalRandom.current().nextInt(slots.length());
+        if (!slots.compareAndSet(index, null, offer)) {
+            // The slot is taken, most likely by a waiting partner: wait on the central buffer instead
+            return EMPTY;
+        }
+        long deadline = System.nanoTime() + windowNanos;
+        for (int spins = 0; spins < SPINS && offer.state.get() == Offer.WAITING; spins++) {
+            Thread.onSpinWait();
+        }
+        boolean interrupted = false;
+        long remaining;
+        while (offer.state.get() == Offer.WAITING
+                && !(interrupted = Thread.interrupted())
+                && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+        if (offer.state.compareAndSet(Offer.WAITING, Offer.CANCELLED)) {
+            slots.compareAndSet(index, offer, null);
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            return EMPTY;
+        }
+        while (offer.state.get() != Offer.MATCHED) {
+            Thread.onSpinWait(); // A partner claimed the offer and is completing the exchange
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt(); // Matched meanwhile; report the interrupt on the next wait
+        }
+        return offer.item;
+    }
+
+    /**
+     * Gets the buffer that serves the operations that do not pair off.
+     *
+     * @return the central buffer.
+     */
+    public TimedItemBuffer getCentral() {
+        return central;
+    }
+
+    /**
+     * Gets the number of items in the central buffer; items being exchanged are not counted.
+     *
+     * @return the number of items in the central buffer.
+     */
+    @Override
+    public int getSize() {
+        return central.getSize();
+    }
+
+    /**
+     * Gets the number of add and remove pairs that were eliminated in the exchange array.
+     *
+     * @return the number of eliminated pairs.
+     */
+    public long getEliminatedCount() {
+        return eliminatedCount.sum();
+    }
+
+    /**
+     * Gets the number of adds and removes that were served by the central buffer.
+     *
+     * @return the number of central operations.
+     */
+    public long getCentralCount() {
+        return centralCount.sum();
+    }
+
+    /**
+     * An add or remove waiting in an exchange slot. A partner first claims the offer, so only one
+     * thread completes it, then writes the item of a remove offer before the state changes to
+     * MATCHED; the owner reads it after, which orders the two.
+     */
+    private static final class Offer {
+        static final int ADD = 0;
+        static final int REMOVE = 1;
+        static final int WAITING = 0;
+        static final int CLAIMED = 1;
+        static final int MATCHED = 2;
+        static final int CANCELLED = 3;
+
+        final int kind;
+        final Thread owner = Thread.currentThread();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        int item;
+
+        Offer(int kind, int item) {
+            this.kind = kind;
+            this.item = item;
+        }
+    }
+}
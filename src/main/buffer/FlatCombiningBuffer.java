@@ -0,0 +1,375 @@
+package buffer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import util.Histogram;
+
+/**
+ * A bounded buffer for highly contended bursts, based on flat combining.
+ * <p>
+ * Instead of every thread taking the buffer's lock in turn, each thread publishes its add or
+ * remove request in a record of its own. Whichever thread acquires the combiner lock applies all
+ * pending requests in one pass over a primitive ring and posts the results back, while the other
+ * threads spin on their own records. The ring and its indices are therefore only touched by one
+ * thread at a time and stay in that core's cache for the whole pass, and a burst of N requests
+ * costs one lock hand-over instead of N.
+ * <p>
+ * Requests that cannot be applied (adds to a full buffer, removes from an empty one) stay
+ * published; the combiner repeats its pass as long as it makes progress, so they are applied
+ * as soon as the state allows. Threads whose request stays pending park until a combiner
+ * completes it.
+ * <p>
+ * Each thread that uses the buffer gets a record on its first request. Records that have had no
+ * request for {@value #AGE_LIMIT} combining passes are unlinked by the combiner, so threads that
+ * come and go neither slow down the passes nor stay reachable; a thread whose record was unlinked
+ * links it again under the combiner lock on its next request.
+ */
+public class FlatCombiningBuffer implements ItemBuffer {
+    // Request state: the low two bits hold the operation, the rest a per-record sequence number, so
+    // that a request that was cancelled and published again is never mistaken for the old one
+    private static final int NONE = 0;
+    private static final int ADD = 1;
+    private static final int REMOVE = 2;
+    private static final int OP_MASK = 3;
+
+    // Spins on the own record before yielding, and yields before trying to combine again
+    private static final int SPIN_LIMIT = 256;
+
+    // Records idle for more than AGE_LIMIT passes are unlinked; the list is checked every CLEANUP_INTERVAL passes
+    private static final int AGE_LIMIT = 1024;
+    private static final int CLEANUP_INTERVAL = 64;
+
+    private final String name;
+    private final int[] ring;
+    private int head;  // Only accessed by the combiner
+    private int count; // Only accessed by the combiner
+    private volatile int size; // Mirrors count after each combining pass
+    private int passes; // Only accessed by the combiner
+    private final AtomicBoolean combining = new AtomicBoolean();
+    private final AtomicReference<Record> records = new AtomicReference<>();
+    private final ThreadLocal<Record> localRecord = ThreadLocal.withInitial(this::register);
+    private final Histogram combinedPerPass;
+
+    /**
+     * Constructs a FlatCombiningBuffer.
+     *
+     * @param name the name of the buffer (used in diagnostics).
+     * @param capacity the maximum number of items the buffer can hold.
+     * @throws IllegalArgumentException if capacity is less than 1.
+     */
+    public FlatCombiningBuffer(String name, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1.");
+        }
+        this.name = name;
+        this.ring = new int[capacity];
+        this.combinedPerPass = new Histogram(name + ".combined.per.pass");
+    }
+
+    /**
+     * Adds an item to the buffer, blocking while the buffer is full.
+     *
+     * @param item the item to add to the buffer.
+     * @throws InterruptedException if the thread is interrupted while waiting; the item is then not added.
+     */
+    @Override
+    public void addItem(int item) throws InterruptedException {
+        Record record = localRecord.get();
+        record.argument = item;
+        int request = record.publish(ADD);
+        if (!record.active) {
+            relink(record);
+        }
+        await(record, request);
+    }
+
+    /**
+     * Removes an item from the buffer, blocking while the buffer is empty.
+     *
+     * @return the item removed from the buffer.
+     * @throws InterruptedException if the thread is interrupted while waiting; no item is then removed.
+     */
+    @Override
+    public int removeItem() throws InterruptedException {
+        Record record = localRecord.get();
+        int request = record.publish(REMOVE);
+        if (!record.active) {
+            relink(record);
+        }
+        await(record, request);
+        return record.result;
+    }
+
+    /**
+     * Waits until a published request has been applied, combining whenever the lock is free.
+     *
+     * @param record the calling thread's record.
+     * @param request the published request state.
+     * @throws InterruptedException if the thread is interrupted before the request was applied.
+     */
+    private void await(Record record, int request) throws InterruptedException {
+        boolean certified = false; // Whether our own pass found the request impossible to apply
+        int spins = 0;
+        while (true) {
+            if (record.state.get() != request) {
+                return;
+            }
+            if (!combining.get() && combining.compareAndSet(false, true)) {
+                try {
+                    combine();
+                } finally {
+                    combining.set(false);
+                }
+                if (record.state.get() != request) {
+                    return;
+                }
+                certified = true;
+            }
+            if (Thread.interrupted()) {
+                if (record.state.compareAndSet(request, request & ~OP_MASK)) {
+                    throw new InterruptedException();
+                }
+                Thread.currentThread().interrupt(); // Applied meanwhile; report the interrupt on the next wait
+                return;
+            }
+            if (certified) {
+                // Nothing can change until another thread's request is combined, which completes ours
+                record.parked = true;
+                if (record.state.get() == request) {
+                    LockSupport.park(this);
+                }
+                record.parked = false;
+                certified = false;
+                spins = 0;
+            } else if (spins++ < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+                spins = 0;
+            }
+        }
+    }
+
+    /**
+     * Applies all pending requests, repeating the pass while it makes progress, since an applied
+     * remove can make room for an add that was skipped earlier in the pass (and vice versa).
+     * Must be called while holding the combiner lock.
+     */
+    private void combine() {
+        passes++;
+        int combined = 0;
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Record record = records.get(); record != null; record = record.next) {
+                int request = record.state.get();
+                int op = request & OP_MASK;
+                if (op != NONE) {
+                    record.lastRequestPass = passes;
+                }
+                if (op == ADD && count < ring.length) {
+                    int item = record.argument;
+                    if (record.state.compareAndSet(request, request & ~OP_MASK)) {
+                        int tail = head + count;
+                        ring[tail < ring.length ? tail : tail - ring.length] = item;
+                        count++;
+                        progress = true;
+                        combined++;
+                        record.wake();
+                    }
+                } else if (op == REMOVE && count > 0) {
+                    record.result = ring[head];
+                    if (record.state.compareAndSet(request, request & ~OP_MASK)) {
+                        head = head + 1 == ring.length ? 0 : head + 1;
+                        count--;
+                        progress = true;
+                        combined++;
+                        record.wake();
+                    }
+                }
+            }
+        }
+        size = count;
+        if (combined > 0) {
+            combinedPerPass.record(combined);
+        }
+        if (passes % CLEANUP_INTERVAL == 0) {
+            unlinkIdle();
+        }
+    }
+
+    /**
+     * Unlinks records that have had no request for more than {@link #AGE_LIMIT} passes.
+     * A record is marked inactive before its state is checked again, and its owner publishes
+     * before checking whether it is active, so either the combiner sees the new request and keeps
+     * the record, or the owner sees that it has to link the record again.
+     * Must be called while holding the combiner lock.
+     */
+    private void unlinkIdle() {
+        Record previous = null;
+        for (Record record = records.get(); record != null; record = record.next) {
+            boolean unlinked = false;
+            if (passes - record.lastRequestPass > AGE_LIMIT) {
+                record.active = false;
+                if ((record.state.get() & OP_MASK) == NONE) {
+                    // Only the head can change concurrently, when a thread registers
+                    unlinked = previous != null || records.compareAndSet(record, record.next);
+                    if (previous != null) {
+                        previous.next = record.next;
+                    }
+                }
+                record.active = !unlinked;
+            }
+            if (!unlinked) {
+                previous = record;
+            }
+        }
+    }
+
+    /**
+     * Links the calling thread's record again after the combiner unlinked it, and applies the
+     * request it has just published. Waits for the combiner lock, since only the combiner may
+     * change which records are linked.
+     *
+     * @param record the calling thread's record.
+     */
+    private void relink(Record record) {
+        int spins = 0;
+        while (!combining.compareAndSet(false, true)) {
+            if (spins++ < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+                spins = 0;
+            }
+        }
+        try {
+            if (!record.active) {
+                record.lastRequestPass = passes;
+                push(record);
+                record.active = true;
+            }
+            combine();
+        } finally {
+            combining.set(false);
+        }
+    }
+
+    /**
+     * Creates the calling thread's record and adds it to the publication list.
+     *
+     * @return the new record.
+     */
+    private Record register() {
+        Record record = new Record(Thread.currentThread());
+        push(record);
+        return record;
+    }
+
+    /**
+     * Adds a record at the head of the publication list.
+     *
+     * @param record the record to add.
+     */
+    private void push(Record record) {
+        Record first;
+        do {
+            first = records.get();
+            record.next = first;
+        } while (!records.compareAndSet(first, record));
+    }
+
+    /**
+     * Gets the name of the buffer.
+     *
+     * @return the buffer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the capacity of the buffer.
+     *
+     * @return the maximum number of items the buffer can hold.
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * Gets the number of items in the buffer as of the last combining pass.
+     *
+     * @return the number of items currently in the buffer.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of records in the publication list, which combining passes scan.
+     * Intended for diagnostics; the count is only a snapshot while threads register.
+     *
+     * @return the number of linked records.
+     */
+    public int getRecordCount() {
+        int linked = 0;
+        for (Record record = records.get(); record != null; record = record.next) {
+            linked++;
+        }
+        return linked;
+    }
+
+    /**
+     * Gets the distribution of the number of requests applied per combining pass, which shows
+     * how much work each lock acquisition did on behalf of other threads.
+     *
+     * @return the combined requests histogram.
+     */
+    public Histogram getCombinedPerPass() {
+        return combinedPerPass;
+    }
+
+    /**
+     * A thread's publication record. The argument is written before, and the result read after,
+     * the volatile state, which orders them between the requesting thread and the combiner.
+     */
+    private static final class Record {
+        final AtomicInteger state = new AtomicInteger();
+        final Thread owner;
+        volatile boolean parked;
+        volatile boolean active = true; // False while unlinked from the publication list
+        int argument;
+        int result;
+        int lastRequestPass; // Only accessed by the combiner
+        volatile Record next;
+
+        Record(Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Publishes a new request with the next sequence number.
+         *
+         * @param op the operation to request.
+         * @return the published request state.
+         */
+        int publish(int op) {
+            int request = ((state.get() & ~OP_MASK) + (OP_MASK + 1)) | op;
+            state.set(request);
+            return request;
+        }
+
+        /**
+         * Unparks the owner if it is waiting for its request to be applied.
+         */
+        void wake() {
+            if (parked) {
+                LockSupport.unpark(owner);
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package buffer;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A zero-capacity buffer in which every item is handed directly from a producer to a consumer.
+ * <p>
+ * A producer that finds a consumer waiting gives the item straight to it and wakes it up; the
+ * item is never written to shared queue storage. Otherwise the producer waits, in arrival order,
+ * until a consumer takes its item, so producers and consumers meet in pairs (a rendezvous).
+ * The buffer's monitor only guards the short matching step; waiting threads park on their own
+ * node and are woken individually, never by a {@code notifyAll()}.
+ */
+public class HandoffBuffer implements TimedItemBuffer {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int SPINS = 64; // Spins before parking, to catch a partner that is about to arrive
+
+    private final String name;
+    private final ArrayDeque<Node> waitingProducers = new ArrayDeque<>(); // Guarded by this
+    private final ArrayDeque<Node> waitingConsumers = new ArrayDeque<>(); // Guarded by this
+    private long handoffCount; // Guarded by this
+
+    /**
+     * Constructs a HandoffBuffer.
+     *
+     * @param name the name of the buffer (used in diagnostics).
+     */
+    public HandoffBuffer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Hands an item to a consumer, waiting until one takes it.
+     *
+     * @param item the item to hand over.
+     * @throws InterruptedException if the thread is interrupted while waiting; the item is then not handed over.
+     */
+    @Override
+    public void addItem(int item) throws InterruptedException {
+        add(item, -1);
+    }
+
+    /**
+     * Hands an item to a consumer that is already waiting.
+     *
+     * @param item the item to hand over.
+     * @return true if a waiting consumer took the item, false if no consumer was waiting.
+     */
+    @Override
+    public boolean tryAdd(int item) {
+        try {
+            return add(item, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Cannot happen without waiting; keep the flag anyway
+            return false;
+        }
+    }
+
+    /**
+     * Hands an item to a consumer, waiting at most the given time for one to take it.
+     *
+     * @param item the item to hand over.
+     * @param timeout the maximum time to wait for a consumer.
+     * @param unit the unit of the timeout argument.
+     * @return true if a consumer took the item, false if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException {
+        return add(item, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    /**
+     * Takes an item from a producer, waiting until one arrives.
+     *
+     * @return the item handed over by a producer.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public int removeItem() throws InterruptedException {
+        return (int) remove(-1);
+    }
+
+    /**
+     * Takes an item from a producer that is already waiting.
+     *
+     * @return the item, or null if no producer was waiting.
+     */
+    @Override
+    public Integer tryRemove() {
+        try {
+            long item = remove(0);
+            return item == EMPTY ? null : (int) item;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Cannot happen without waiting; keep the flag anyway
+            return null;
+        }
+    }
+
+    /**
+     * Takes an item from a producer, waiting at most the given time for one to arrive.
+     *
+     * @param timeout the maximum time to wait for a producer.
+     * @param unit the unit of the timeout argument.
+     * @return the item, or null if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public Integer poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long item = remove(Math.max(0, unit.toNanos(timeout)));
+        return item == EMPTY ? null : (int) item;
+    }
+
+    /**
+     * Hands an item to the first waiting consumer, or waits to be matched.
+     *
+     * @param item the item.
+     * @param timeoutNanos the maximum time to wait, 0 to not wait, or a negative value to wait indefinitely.
+     * @return true if a consumer took the item.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private boolean add(int item, long timeoutNanos) throws InterruptedException {
+        Node consumer;
+        Node node = null;
+        synchronized (this) {
+            while ((consumer = waitingConsumers.pollFirst()) != null) {
+                consumer.item = item;
+                if (consumer.state.compareAndSet(Node.WAITING, Node.MATCHED)) {
+                    handoffCount++;
+                    break;
+                }
+            }
+            if (consumer == null && timeoutNanos != 0) {
+                node = new Node(item);
+                waitingProducers.addLast(node);
+            }
+        }
+        if (consumer != null) {
+            LockSupport.unpark(consumer.thread);
+            return true;
+        }
+        return node != null && await(node, waitingProducers, timeoutNanos);
+    }
+
+    /**
+     * Takes the item of the first waiting producer, or waits to be matched.
+     *
+     * @param timeoutNanos the maximum time to wait, 0 to not wait, or a negative value to wait indefinitely.
+     * @return the item, or {@link #EMPTY} if no producer handed one over in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private long remove(long timeoutNanos) throws InterruptedException {
+        Node producer;
+        Node node = null;
+        synchronized (this) {
+            while ((producer = waitingProducers.pollFirst()) != null) {
+                if (producer.state.compareAndSet(Node.WAITING, Node.MATCHED)) {
+                    handoffCount++;
+                    break;
+                }
+            }
+            if (producer == null && timeoutNanos != 0) {
+                node = new Node(0);
+                waitingConsumers.addLast(node);
+            }
+        }
+        if (producer != null) {
+            LockSupport.unpark(producer.thread);
+            return producer.item;
+        }
+        return node != null && await(node, waitingConsumers, timeoutNanos) ? node.item : EMPTY;
+    }
+
+    /**
+     * Waits until a node is matched, withdrawing it on timeout or interrupt.
+     *
+     * @param node the calling thread's node.
+     * @param queue the queue the node waits in.
+     * @param timeoutNanos the maximum time to wait, or a negative value to wait indefinitely.
+     * @return true if the node was matched, false if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted before the node was matched.
+     */
+    private boolean await(Node node, ArrayDeque<Node> queue, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (int spins = 0; spins < SPINS && node.state.get() == Node.WAITING; spins++) {
+            Thread.onSpinWait();
+        }
+        while (node.state.get() == Node.WAITING) {
+            boolean interrupted = Thread.interrupted();
+            long remaining = deadline - System.nanoTime();
+            if (interrupted || (timeoutNanos >= 0 && remaining <= 0)) {
+                if (node.state.compareAndSet(Node.WAITING, Node.CANCELLED)) {
+                    synchronized (this) {
+                        queue.remove(node);
+                    }
+                    if (interrupted) {
+                        throw new InterruptedException();
+                    }
+                    return false;
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt(); // Matched meanwhile; report the interrupt on the next wait
+                }
+                break;
+            }
+            if (timeoutNanos < 0) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the name of the buffer.
+     *
+     * @return the buffer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of items in the buffer, which is always zero since items are only handed over.
+     *
+     * @return 0.
+     */
+    @Override
+    public int getSize() {
+        return 0;
+    }
+
+    /**
+     * Gets the number of producers waiting for a consumer.
+     *
+     * @return the number of waiting producers.
+     */
+    public synchronized int getWaitingProducerCount() {
+        return waitingProducers.size();
+    }
+
+    /**
+     * Gets the number of consumers waiting for a producer.
+     *
+     * @return the number of waiting consumers.
+     */
+    public synchronized int getWaitingConsumerCount() {
+        return waitingConsumers.size();
+    }
+
+    /**
+     * Gets the number of items handed from a producer to a consumer.
+     *
+     * @return the number of handoffs.
+     */
+    public synchronized long getHandoffCount() {
+        return handoffCount;
+    }
+
+    /**
+     * A waiting producer or consumer. The matching thread writes the item before the state
+     * changes to MATCHED, and the waiting thread reads it after, which orders the two.
+     */
+    static final class Node {
+        static final int WAITING = 0;
+        static final int MATCHED = 1;
+        static final int CANCELLED = 2;
+
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        final Thread thread = Thread.currentThread();
+        int item;
+
+        Node(int item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package buffer;
+
+/**
+ * Common operations of the bounded buffers, so that tools such as the soak harness can run
+ * the same workload against any buffer implementation.
+ */
+public interface ItemBuffer {
+
+    /**
+     * Adds an item to the buffer, blocking while the buffer is full.
+     *
+     * @param item the item to add to the buffer.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    void addItem(int item) throws InterruptedException;
+
+    /**
+     * Removes an item from the buffer, blocking while the buffer is empty.
+     *
+     * @return the item removed from the buffer.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    int removeItem() throws InterruptedException;
+
+    /**
+     * Gets the current number of items in the buffer.
+     *
+     * @return the number of items currently in the buffer.
+     */
+    int getSize();
+}
@@ -0,0 +1,347 @@
+package buffer;
+
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import util.Histogram;
+import util.Logger;
+
+/**
+ * Samples how time is spent around a buffer's monitor, separating the time threads spend
+ * waiting to enter the monitor from the time they hold it and the time they spend in
+ * {@code wait()}, and counting wakeups after which the awaited condition still did not hold.
+ *
+ * <p>Profiling is off unless enabled with {@link #enable(int)} or the system property
+ * {@code buffer.profile.locks=true} before the buffer is created. Only one operation in
+ * {@code sampleRate} per thread is timed, so the cost of an unsampled operation is a
+ * thread-local counter increment. Summaries are written through {@link Logger} on demand
+ * via {@link #dumpAll()} and automatically at shutdown.</p>
+ *
+ * <p>Totals of threads that have terminated are folded into a single retired entry, so that
+ * thread churn neither grows the profiler nor slows down its summaries. Profilers only weakly
+ * reference their buffers and are forgotten once the buffer has been garbage collected.</p>
+ */
+public class LockProfiler {
+
+    private static volatile boolean enabled = Boolean.getBoolean("buffer.profile.locks");
+    private static volatile int sampleMask = toMask(Integer.getInteger("buffer.profile.sample.rate", 64));
+
+    private static final Queue<LockProfiler> PROFILERS = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean SHUTDOWN_HOOK_INSTALLED = new AtomicBoolean();
+
+    private final WeakReference<Object> buffer;
+    private final String bufferName;
+    private final int mask;
+    private final Queue<Sample> threads = new ConcurrentLinkedQueue<>();
+    private final Sample retired = new Sample("retired threads", null); // Guarded by itself
+    private long retiredThreads; // Guarded by retired
+    private final ThreadLocal<Sample> localSample = ThreadLocal.withInitial(this::newSample);
+    private final Histogram acquireTimes;
+    private final Histogram holdTimes;
+
+    private LockProfiler(Object buffer, String bufferName, int mask) {
+        this.buffer = new WeakReference<>(buffer);
+        this.bufferName = bufferName;
+        this.mask = mask;
+        this.acquireTimes = new Histogram(bufferName + ".lock.acquire.ns");
+        this.holdTimes = new Histogram(bufferName + ".lock.hold.ns");
+    }
+
+    /**
+     * Enables profiling for buffers created after this call.
+     *
+     * @param sampleRate time one operation in this many per thread; rounded up to a power of two.
+     */
+    public static void enable(int sampleRate) {
+        sampleMask = toMask(sampleRate);
+        enabled = true;
+    }
+
+    /**
+     * Disables profiling for buffers created after this call. Buffers that are already
+     * profiled keep their profilers.
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    /**
+     * Creates a profiler for a buffer if profiling is enabled.
+     *
+     * @param buffer the buffer to profile; its profiler is dropped once it has been garbage collected.
+     * @param bufferName the name of the buffer to profile.
+     * @return the profiler, or null if profiling is disabled.
+     */
+    static LockProfiler forBuffer(Object buffer, String bufferName) {
+        if (!enabled) {
+            return null;
+        }
+        LockProfiler profiler = new LockProfiler(buffer, bufferName, sampleMask);
+        pruneCollected(); // A new buffer often replaces one that has been discarded
+        PROFILERS.add(profiler);
+        if (SHUTDOWN_HOOK_INSTALLED.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(LockProfiler::dumpAll, "LockProfiler-Shutdown"));
+        }
+        return profiler;
+    }
+
+    /**
+     * Writes the summary of every profiled buffer that is still in use to the log.
+     */
+    public static void dumpAll() {
+        pruneCollected();
+        for (LockProfiler profiler : PROFILERS) {
+            Logger.info(profiler.summary());
+        }
+    }
+
+    /**
+     * Gets the number of registered profilers, after dropping those of garbage-collected buffers.
+     *
+     * @return the number of profiled buffers still in use.
+     */
+    public static int getProfiledBufferCount() {
+        pruneCollected();
+        return PROFILERS.size();
+    }
+
+    private static void pruneCollected() {
+        PROFILERS.removeIf(profiler -> profiler.buffer.get() == null);
+    }
+
+    /**
+     * Starts timing an operation if it is selected for sampling.
+     * Must be called immediately before entering the monitor.
+     *
+     * @return the sample to update while the operation runs, or null if the operation is not sampled.
+     */
+    Sample begin() {
+        Sample sample = localSample.get();
+        if ((++sample.operations & mask) != 0) {
+            return null;
+        }
+        sample.enteredAt = System.nanoTime();
+        sample.waitedNanos = 0;
+        return sample;
+    }
+
+    /**
+     * Gets the distribution of the time (in nanoseconds) sampled operations waited to enter the monitor.
+     *
+     * @return the acquire time histogram.
+     */
+    public Histogram getAcquireTimes() {
+        return acquireTimes;
+    }
+
+    /**
+     * Gets the distribution of the time (in nanoseconds) sampled operations held the monitor,
+     * excluding the time spent in {@code wait()}.
+     *
+     * @return the hold time histogram.
+     */
+    public Histogram getHoldTimes() {
+        return holdTimes;
+    }
+
+    /**
+     * Gets the total time sampled operations spent in {@code wait()}.
+     *
+     * @return the total wait time, in nanoseconds.
+     */
+    public long getWaitNanos() {
+        long total = retired.waitNanos;
+        for (Sample sample : threads) {
+            total += sample.waitNanos;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of times sampled operations returned from {@code wait()}.
+     *
+     * @return the number of waits.
+     */
+    public long getWaitCount() {
+        long total = retired.waits;
+        for (Sample sample : threads) {
+            total += sample.waits;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of wakeups after which the awaited condition still did not hold.
+     *
+     * @return the number of useless wakeups.
+     */
+    public long getUselessWakeups() {
+        long total = retired.uselessWakeups;
+        for (Sample sample : threads) {
+            total += sample.uselessWakeups;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of live threads with their own totals, after folding the totals of
+     * terminated threads into the retired entry.
+     *
+     * @return the number of tracked live threads.
+     */
+    public int getThreadCount() {
+        pruneTerminated();
+        return threads.size();
+    }
+
+    /**
+     * Builds a multi-line summary with per-buffer distributions and per-thread totals.
+     *
+     * @return the summary text.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Lock profile for ").append(bufferName)
+                .append(" (1 in ").append(mask + 1).append(" operations sampled)\n");
+        sb.append("  ").append(acquireTimes).append('\n');
+        sb.append("  ").append(holdTimes).append('\n');
+        pruneTerminated();
+        for (Sample sample : threads) {
+            appendTotals(sb, sample.threadName, sample);
+        }
+        synchronized (retired) {
+            appendTotals(sb, retired.threadName + " (" + retiredThreads + ")", retired);
+        }
+        return sb.toString();
+    }
+
+    private static void appendTotals(StringBuilder sb, String label, Sample sample) {
+        long samples = sample.samples;
+        if (samples == 0) {
+            return;
+        }
+        sb.append(String.format("  %-24s samples=%d acquire.avg=%.1fus acquire.max=%.1fus hold.avg=%.1fus "
+                        + "wait.total=%.1fms waits=%d useless.wakeups=%d%n",
+                label, samples,
+                sample.acquireNanos / 1000.0 / samples, sample.maxAcquireNanos / 1000.0,
+                sample.holdNanos / 1000.0 / samples, sample.waitNanos / 1_000_000.0,
+                sample.waits, sample.uselessWakeups));
+    }
+
+    private Sample newSample() {
+        pruneTerminated(); // A new thread often replaces one that has terminated
+        Sample sample = new Sample(Thread.currentThread().getName(), Thread.currentThread());
+        threads.add(sample);
+        return sample;
+    }
+
+    /**
+     * Folds the totals of terminated threads into the retired entry and forgets their samples.
+     * A terminated thread no longer writes its sample, so its totals are final.
+     */
+    private void pruneTerminated() {
+        for (Sample sample : threads) {
+            Thread owner = sample.owner.get();
+            if ((owner == null || !owner.isAlive()) && threads.remove(sample)) {
+                synchronized (retired) {
+                    retired.samples += sample.samples;
+                    retired.acquireNanos += sample.acquireNanos;
+                    retired.maxAcquireNanos = Math.max(retired.maxAcquireNanos, sample.maxAcquireNanos);
+                    retired.holdNanos += sample.holdNanos;
+                    retired.waitNanos += sample.waitNanos;
+                    retired.waits += sample.waits;
+                    retired.uselessWakeups += sample.uselessWakeups;
+                    retiredThreads++;
+                }
+            }
+        }
+    }
+
+    private static int toMask(int sampleRate) {
+        if (sampleRate <= 1) {
+            return 0;
+        }
+        return Integer.highestOneBit(sampleRate - 1) * 2 - 1;
+    }
+
+    /**
+     * Per-thread timing state and totals for one profiled buffer.
+     * Fields are only written by the owning thread; they are volatile so summaries read
+     * reasonably fresh values from other threads. The owner is only weakly referenced, so a
+     * terminated thread is not kept alive by its sample.
+     */
+    final class Sample {
+        private final String threadName;
+        private final WeakReference<Thread> owner;
+        private long operations;
+        private long enteredAt;
+        private long acquiredAt;
+        private long waitStartedAt;
+        private long waitedNanos;
+
+        private volatile long samples;
+        private volatile long acquireNanos;
+        private volatile long maxAcquireNanos;
+        private volatile long holdNanos;
+        private volatile long waitNanos;
+        private volatile long waits;
+        private volatile long uselessWakeups;
+
+        private Sample(String threadName, Thread owner) {
+            this.threadName = threadName;
+            this.owner = new WeakReference<>(owner);
+        }
+
+        /**
+         * Records that the monitor has been entered. Must be the first statement inside it.
+         */
+        void acquired() {
+            acquiredAt = System.nanoTime();
+            long acquire = acquiredAt - enteredAt;
+            acquireTimes.record(acquire);
+            acquireNanos += acquire;
+            if (acquire > maxAcquireNanos) {
+                maxAcquireNanos = acquire;
+            }
+        }
+
+        /**
+         * Records that the thread is about to call {@code wait()}.
+         */
+        void waiting() {
+            waitStartedAt = System.nanoTime();
+        }
+
+        /**
+         * Records that {@code wait()} returned.
+         *
+         * @param useless true if the condition the thread waits for still does not hold.
+         */
+        void wokeUp(boolean useless) {
+            long waited = System.nanoTime() - waitStartedAt;
+            waitStartedAt = 0;
+            waitedNanos += waited;
+            waitNanos += waited;
+            waits++;
+            if (useless) {
+                uselessWakeups++;
+            }
+        }
+
+        /**
+         * Records that the thread is about to leave the monitor. Must be called in a
+         * {@code finally} block at the end of it, so that operations that throw are closed as well;
+         * a wait that was interrupted is counted as wait time rather than hold time.
+         */
+        void released() {
+            if (waitStartedAt != 0) {
+                wokeUp(false);
+            }
+            long hold = System.nanoTime() - acquiredAt - waitedNanos;
+            holdTimes.record(hold);
+            holdNanos += hold;
+            samples++;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package buffer;
+
+/**
+ * What {@link ConfigurableBuffer#addItem(int)} does when the buffer is full.
+ */
+public enum OverflowPolicy {
+    /** Wait until space becomes available (the default). */
+    BLOCK,
+    /** Wait until space becomes available or the configured block timeout elapses, then reject. */
+    BLOCK_WITH_TIMEOUT,
+    /** Reject the new item immediately. */
+    REJECT,
+    /** Silently discard the new item. */
+    DROP_NEWEST,
+    /** Discard the oldest queued item to make room for the new one. */
+    DROP_OLDEST,
+    /** Process the new item in the calling thread with the configured caller-runs handler. */
+    CALLER_RUNS
+}
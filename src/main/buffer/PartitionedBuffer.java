@@ -0,0 +1,334 @@
+package buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounded buffer split into ordered lanes, giving strict per-key ordering with parallel consumption.
+ * {@link #addItem(int, int)} routes each item by the hash of its key to one of the lanes, so all
+ * items of a key travel through the same lane in FIFO order. Consumers {@link #register(String)}
+ * to obtain a {@link Member}; every lane is owned by exactly one member, and lanes are reassigned
+ * whenever a member joins or leaves.
+ *
+ * <p>An item taken from a lane stays "in flight" until its member asks for the next item or
+ * leaves. A lane whose item is still in flight is not handed to its new owner after a rebalance,
+ * so two consumers never process items of the same key at the same time.</p>
+ */
+public class PartitionedBuffer {
+    private final String name;
+    private final Lane[] lanes;
+    private final List<Member> members = new ArrayList<>(); // Guarded by this
+
+    /**
+     * Constructs a PartitionedBuffer.
+     *
+     * @param name the name of the buffer (used in diagnostics).
+     * @param laneCount the number of ordered lanes.
+     * @param laneCapacity the maximum number of items each lane can hold.
+     * @throws IllegalArgumentException if laneCount or laneCapacity is less than 1.
+     */
+    public PartitionedBuffer(String name, int laneCount, int laneCapacity) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("Lane count must be at least 1.");
+        }
+        if (laneCapacity < 1) {
+            throw new IllegalArgumentException("Lane capacity must be at least 1.");
+        }
+        this.name = name;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(laneCapacity);
+        }
+    }
+
+    /**
+     * Adds an item to the lane selected by its key.
+     * Blocks if that lane is full until its owner removes an item.
+     *
+     * @param key the key that determines the lane; items with equal keys are delivered in order.
+     * @param item the item to add to the buffer.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void addItem(int key, int item) throws InterruptedException {
+        Lane lane = lanes[laneFor(key)];
+        Member owner;
+        synchronized (lane) {
+            while (lane.count == lane.items.length) {
+                lane.wait(); // Wait until the lane's owner frees a slot
+            }
+            lane.offer(item);
+            owner = lane.owner;
+        }
+        if (owner != null) {
+            owner.signal();
+        }
+    }
+
+    /**
+     * Registers a consumer and rebalances the lanes across all registered consumers.
+     *
+     * @param consumerName the name of the consumer (used in diagnostics).
+     * @return the membership through which the consumer removes items.
+     */
+    public synchronized Member register(String consumerName) {
+        Member member = new Member(consumerName);
+        members.add(member);
+        rebalance();
+        return member;
+    }
+
+    /**
+     * Removes a consumer and hands its lanes to the remaining consumers.
+     *
+     * @param member the membership to remove.
+     */
+    private synchronized void unregister(Member member) {
+        if (members.remove(member)) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Assigns lane {@code i} to member {@code i % memberCount} and wakes every member, so that
+     * each one starts serving its new lanes. Must be called while holding this buffer's monitor.
+     */
+    private void rebalance() {
+        int memberCount = members.size();
+        List<List<Lane>> assignments = new ArrayList<>();
+        for (int m = 0; m < memberCount; m++) {
+            assignments.add(new ArrayList<>());
+        }
+        for (int i = 0; i < lanes.length; i++) {
+            Member owner = memberCount == 0 ? null : members.get(i % memberCount);
+            synchronized (lanes[i]) {
+                lanes[i].owner = owner;
+            }
+            if (owner != null) {
+                assignments.get(i % memberCount).add(lanes[i]);
+            }
+        }
+        for (int m = 0; m < memberCount; m++) {
+            Member member = members.get(m);
+            member.ownedLanes = assignments.get(m).toArray(new Lane[0]);
+            member.signal();
+        }
+    }
+
+    private int laneFor(int key) {
+        int hash = key * 0x9E3779B9; // Spread consecutive keys across lanes
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    /**
+     * Gets the name of the buffer.
+     *
+     * @return the buffer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of lanes.
+     *
+     * @return the lane count.
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Gets the lane that items with the given key are routed to.
+     *
+     * @param key the item key.
+     * @return the lane index.
+     */
+    public int getLane(int key) {
+        return laneFor(key);
+    }
+
+    /**
+     * Gets the current number of items in every lane.
+     *
+     * @return the depth of each lane, indexed by lane.
+     */
+    public int[] getLaneDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            synchronized (lanes[i]) {
+                depths[i] = lanes[i].count;
+            }
+        }
+        return depths;
+    }
+
+    /**
+     * Gets the largest depth each lane has reached, which points at hot keys.
+     *
+     * @return the maximum depth of each lane, indexed by lane.
+     */
+    public int[] getLaneMaxDepths() {
+        int[] maxDepths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            synchronized (lanes[i]) {
+                maxDepths[i] = lanes[i].maxDepth;
+            }
+        }
+        return maxDepths;
+    }
+
+    /**
+     * Gets the total number of items added to each lane.
+     *
+     * @return the number of items routed to each lane, indexed by lane.
+     */
+    public long[] getLaneItemCounts() {
+        long[] added = new long[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            synchronized (lanes[i]) {
+                added[i] = lanes[i].added;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Gets the current size of the buffer across all lanes.
+     *
+     * @return the number of items currently in the buffer.
+     */
+    public int getSize() {
+        int size = 0;
+        for (int depth : getLaneDepths()) {
+            size += depth;
+        }
+        return size;
+    }
+
+    /**
+     * An ordered lane: a fixed-size ring of items guarded by the lane's own monitor.
+     */
+    private static final class Lane {
+        private final int[] items;
+        private int head;
+        private int count;
+        private int maxDepth;
+        private long added;
+        private Member owner;    // The member that serves this lane
+        private Member inFlight; // The member still processing an item from this lane, if any
+
+        Lane(int capacity) {
+            this.items = new int[capacity];
+        }
+
+        void offer(int item) {
+            items[(head + count) % items.length] = item;
+            count++;
+            added++;
+            maxDepth = Math.max(maxDepth, count);
+        }
+
+        int poll() {
+            int item = items[head];
+            head = (head + 1) % items.length;
+            count--;
+            return item;
+        }
+    }
+
+    /**
+     * A consumer's membership in the buffer. Each member must be used by a single consumer thread.
+     */
+    public final class Member implements AutoCloseable {
+        private final String consumerName;
+        private volatile Lane[] ownedLanes = new Lane[0];
+        private volatile boolean closed;
+        private Lane current; // The lane of the item this member is processing
+        private int nextLane; // Round-robin position, so busy lanes cannot starve the others
+
+        private Member(String consumerName) {
+            this.consumerName = consumerName;
+        }
+
+        /**
+         * Removes the next item from one of this member's lanes.
+         * Calling this method also marks the previously removed item as fully processed.
+         * Blocks until one of the owned lanes has an item.
+         *
+         * @return the item removed from the buffer.
+         * @throws InterruptedException if the thread is interrupted while waiting.
+         * @throws IllegalStateException if the member has been closed.
+         */
+        public int removeItem() throws InterruptedException {
+            finishCurrent();
+            synchronized (this) {
+                while (true) {
+                    if (closed) {
+                        throw new IllegalStateException(consumerName + " has left " + name + ".");
+                    }
+                    Lane[] owned = ownedLanes;
+                    for (int i = 0; i < owned.length; i++) {
+                        Lane lane = owned[(nextLane + i) % owned.length];
+                        synchronized (lane) {
+                            if (lane.owner == this && lane.count > 0 && lane.inFlight == null) {
+                                int item = lane.poll();
+                                lane.inFlight = this;
+                                lane.notifyAll(); // Notify producers that space is available
+                                current = lane;
+                                nextLane = (nextLane + i + 1) % owned.length;
+                                return item;
+                            }
+                        }
+                    }
+                    wait(); // Wait until a producer, a rebalance or a previous owner signals
+                }
+            }
+        }
+
+        /**
+         * Leaves the buffer. The item in flight is marked as processed and this member's lanes
+         * are handed to the remaining members.
+         */
+        @Override
+        public void close() {
+            finishCurrent();
+            closed = true;
+            unregister(this);
+            signal();
+        }
+
+        /**
+         * Gets the name of the consumer holding this membership.
+         *
+         * @return the consumer name.
+         */
+        public String getConsumerName() {
+            return consumerName;
+        }
+
+        /**
+         * Releases the lane of the item this member was processing. If the lane has been
+         * reassigned meanwhile, its new owner is woken up so it can continue the lane in order.
+         */
+        private void finishCurrent() {
+            Lane lane = current;
+            if (lane == null) {
+                return;
+            }
+            current = null;
+            Member owner;
+            synchronized (lane) {
+                lane.inFlight = null;
+                owner = lane.owner;
+            }
+            if (owner != null && owner != this) {
+                owner.signal();
+            }
+        }
+
+        private synchronized void signal() {
+            notifyAll();
+        }
+    }
+}
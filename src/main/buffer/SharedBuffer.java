@@ -2,16 +2,27 @@ package buffer;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A thread-safe shared buffer used in producer-consumer scenarios.
  * This class provides methods to add and remove items from the buffer
  * while ensuring proper synchronization between threads.
+ * Waits on a full or empty buffer are reported as {@link BufferFullWait} and
+ * {@link BufferEmptyWait} Java Flight Recorder events.
+ * When lock profiling is enabled (see {@link LockProfiler}) the time spent acquiring, holding and
+ * waiting on the buffer's monitor is sampled for the blocking and timed operations.
  */
-public class SharedBuffer {
+public class SharedBuffer implements TimedItemBuffer {
     
+    private static final AtomicInteger BUFFER_IDS = new AtomicInteger();
+
     private final Queue<Integer> buffer;  // The buffer to hold items
     private final int capacity;  // Maximum capacity of the buffer
+    private final String name;  // Name of the buffer, used in diagnostics
+    private volatile int count;  // Mirrors buffer.size() so tryAdd and tryRemove can skip the monitor
+    private final LockProfiler profiler;  // Null unless lock profiling was enabled when the buffer was created
 
     /**
      * Constructs a new SharedBuffer with the specified capacity.
@@ -19,8 +30,20 @@ public class SharedBuffer {
      * @param capacity The maximum number of items the buffer can hold.
      */
     public SharedBuffer(int capacity) {
+        this("SharedBuffer-" + BUFFER_IDS.incrementAndGet(), capacity);
+    }
+
+    /**
+     * Constructs a new named SharedBuffer with the specified capacity.
+     *
+     * @param name The name of the buffer, used in diagnostics.
+     * @param capacity The maximum number of items the buffer can hold.
+     */
+    public SharedBuffer(String name, int capacity) {
+        this.name = name;
         this.capacity = capacity;
         this.buffer = new LinkedList<>();
+        this.profiler = LockProfiler.forBuffer(this, name);
     }
 
     /**
@@ -30,12 +53,74 @@ public class SharedBuffer {
      * @param item The item to add to the buffer.
      * @throws InterruptedException if the thread is interrupted while waiting or performing operations.
      */
-    public synchronized void addItem(int item) throws InterruptedException {
-        while (buffer.size() == capacity) {
-            wait(); // Wait until there is space in the buffer
+    @Override
+    public void addItem(int item) throws InterruptedException {
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                awaitSpace(sample, -1);
+                enqueue(item);
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an item if the buffer has space right now, without waiting.
+     * A buffer that is visibly full is reported without entering the monitor.
+     *
+     * @param item The item to add to the buffer.
+     * @return true if the item was added, false if the buffer is full.
+     */
+    @Override
+    public boolean tryAdd(int item) {
+        if (count >= capacity) {
+            return false;
+        }
+        synchronized (this) {
+            if (buffer.size() >= capacity) {
+                return false;
+            }
+            enqueue(item);
+            return true;
+        }
+    }
+
+    /**
+     * Adds an item to the buffer, waiting at most the given time for space to become available.
+     * The deadline is tracked with {@link System#nanoTime()}, so spurious wakeups do not extend it.
+     *
+     * @param item The item to add to the buffer.
+     * @param timeout The maximum time to wait for space.
+     * @param unit The unit of the timeout argument.
+     * @return true if the item was added, false if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException {
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                boolean added = awaitSpace(sample, Math.max(0, unit.toNanos(timeout)));
+                if (added) {
+                    enqueue(item);
+                }
+                return added;
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
         }
-        buffer.offer(item);
-        notifyAll(); // Notify consumers that an item is available
     }
 
     /**
@@ -45,15 +130,227 @@ public class SharedBuffer {
      * @return The item removed from the buffer.
      * @throws InterruptedException if the thread is interrupted while waiting or performing operations.
      */
-    public synchronized int removeItem() throws InterruptedException {
+    @Override
+    public int removeItem() throws InterruptedException {
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                awaitItem(sample, -1);
+                return dequeue();
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes an item if one is available right now, without waiting.
+     * An empty buffer is reported without entering the monitor.
+     *
+     * @return The item removed from the buffer, or null if the buffer is empty.
+     */
+    @Override
+    public Integer tryRemove() {
+        if (count == 0) {
+            return null;
+        }
+        synchronized (this) {
+            return buffer.isEmpty() ? null : dequeue();
+        }
+    }
+
+    /**
+     * Removes an item from the buffer, waiting at most the given time for one to become available.
+     * The deadline is tracked with {@link System#nanoTime()}, so spurious wakeups do not extend it.
+     *
+     * @param timeout The maximum time to wait for an item.
+     * @param unit The unit of the timeout argument.
+     * @return The item removed from the buffer, or null if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @Override
+    public Integer poll(long timeout, TimeUnit unit) throws InterruptedException {
+        LockProfiler.Sample sample = profiler == null ? null : profiler.begin();
+        synchronized (this) {
+            if (sample != null) {
+                sample.acquired();
+            }
+            try {
+                return awaitItem(sample, Math.max(0, unit.toNanos(timeout))) ? dequeue() : null;
+            } finally {
+                if (sample != null) {
+                    sample.released();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until the buffer has space. Must be called while holding the buffer's monitor.
+     *
+     * @param sample The lock profiling sample of the current operation, or null.
+     * @param timeoutNanos The maximum time to wait, or a negative value to wait indefinitely.
+     * @return true if space is available, false if the timeout elapsed first.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private boolean awaitSpace(LockProfiler.Sample sample, long timeoutNanos) throws InterruptedException {
+        if (buffer.size() < capacity) {
+            return true;
+        }
+        if (timeoutNanos == 0) {
+            return false;
+        }
+        boolean timed = timeoutNanos > 0;
+        long deadline = System.nanoTime() + timeoutNanos;
+        BufferFullWait fullWait = new BufferFullWait();
+        fullWait.begin();
+        while (buffer.size() >= capacity) {
+            long remaining = deadline - System.nanoTime();
+            if (timed && remaining <= 0) {
+                commit(fullWait, 0);
+                return false;
+            }
+            if (sample != null) {
+                sample.waiting();
+            }
+            if (timed) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } else {
+                wait(); // Wait until there is space in the buffer
+            }
+            if (sample != null) {
+                // A timed wait that simply ran out is not a useless wakeup
+                sample.wokeUp(buffer.size() >= capacity && (!timed || deadline - System.nanoTime() > 0));
+            }
+        }
+        commit(fullWait, 1);
+        return true;
+    }
+
+    /**
+     * Waits until the buffer holds an item. Must be called while holding the buffer's monitor.
+     *
+     * @param sample The lock profiling sample of the current operation, or null.
+     * @param timeoutNanos The maximum time to wait, or a negative value to wait indefinitely.
+     * @return true if an item is available, false if the timeout elapsed first.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private boolean awaitItem(LockProfiler.Sample sample, long timeoutNanos) throws InterruptedException {
+        if (!buffer.isEmpty()) {
+            return true;
+        }
+        if (timeoutNanos == 0) {
+            return false;
+        }
+        boolean timed = timeoutNanos > 0;
+        long deadline = System.nanoTime() + timeoutNanos;
+        BufferEmptyWait emptyWait = new BufferEmptyWait();
+        emptyWait.begin();
         while (buffer.isEmpty()) {
-            wait(); // Wait until there is an item to consume
+            long remaining = deadline - System.nanoTime();
+            if (timed && remaining <= 0) {
+                commit(emptyWait, 0);
+                return false;
+            }
+            if (sample != null) {
+                sample.waiting();
+            }
+            if (timed) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } else {
+                wait(); // Wait until there is an item to consume
+            }
+            if (sample != null) {
+                // A timed wait that simply ran out is not a useless wakeup
+                sample.wokeUp(buffer.isEmpty() && (!timed || deadline - System.nanoTime() > 0));
+            }
         }
+        commit(emptyWait, 1);
+        return true;
+    }
+
+    /**
+     * Appends an item and wakes waiting consumers. Must be called while holding the buffer's monitor.
+     *
+     * @param item The item to add.
+     */
+    private void enqueue(int item) {
+        buffer.offer(item);
+        count = buffer.size();
+        notifyAll(); // Notify consumers that an item is available
+    }
+
+    /**
+     * Removes the oldest item and wakes waiting producers. Must be called while holding the buffer's monitor.
+     *
+     * @return The removed item.
+     */
+    private int dequeue() {
         int item = buffer.poll();
+        count = buffer.size();
         notifyAll(); // Notify producers that space is available
         return item;
     }
 
+    /**
+     * Ends a wait event and commits it if it exceeded the recording's threshold.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param event The wait event, begun when the wait started.
+     * @param itemCount The number of items the waiting call moved.
+     */
+    private void commit(BufferFullWait event, int itemCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.bufferName = name;
+            event.depth = buffer.size();
+            event.capacity = capacity;
+            event.itemCount = itemCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Ends a wait event and commits it if it exceeded the recording's threshold.
+     * Must be called while holding the buffer's monitor.
+     *
+     * @param event The wait event, begun when the wait started.
+     * @param itemCount The number of items the waiting call moved.
+     */
+    private void commit(BufferEmptyWait event, int itemCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.bufferName = name;
+            event.depth = buffer.size();
+            event.capacity = capacity;
+            event.itemCount = itemCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the name of the buffer.
+     *
+     * @return The buffer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the lock profiler sampling this buffer's monitor.
+     *
+     * @return The profiler, or null if lock profiling was not enabled when the buffer was created.
+     */
+    public LockProfiler getLockProfiler() {
+        return profiler;
+    }
+
     /**
      * Returns the current size of the buffer.
      *
@@ -63,6 +360,17 @@ public class SharedBuffer {
         return buffer.size();
     }
 
+    /**
+     * Returns the current size of the buffer.
+     * Equivalent to {@link #size()}.
+     *
+     * @return The number of items currently in the buffer.
+     */
+    @Override
+    public synchronized int getSize() {
+        return buffer.size();
+    }
+
     /**
      * Checks if the buffer is empty.
      *
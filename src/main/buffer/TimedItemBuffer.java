@@ -0,0 +1,46 @@
+package buffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A buffer that, besides blocking, can add and remove items without waiting or with a deadline,
+ * so that callers can fail fast or switch to a fallback path instead of parking indefinitely.
+ */
+public interface TimedItemBuffer extends ItemBuffer {
+
+    /**
+     * Adds an item if the buffer has space right now, without waiting.
+     *
+     * @param item the item to add to the buffer.
+     * @return true if the item was added, false if the buffer is full.
+     */
+    boolean tryAdd(int item);
+
+    /**
+     * Adds an item, waiting at most the given time for space to become available.
+     *
+     * @param item the item to add to the buffer.
+     * @param timeout the maximum time to wait for space.
+     * @param unit the unit of the timeout argument.
+     * @return true if the item was added, false if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    boolean offer(int item, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Removes an item if one is available right now, without waiting.
+     *
+     * @return the item removed from the buffer, or null if the buffer is empty.
+     */
+    Integer tryRemove();
+
+    /**
+     * Removes an item, waiting at most the given time for one to become available.
+     *
+     * @param timeout the maximum time to wait for an item.
+     * @param unit the unit of the timeout argument.
+     * @return the item removed from the buffer, or null if the timeout elapsed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    Integer poll(long timeout, TimeUnit unit) throws InterruptedException;
+}
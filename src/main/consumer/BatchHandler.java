@@ -0,0 +1,18 @@
+package consumer;
+
+/**
+ * Callback that receives the micro-batches assembled by a batching {@link Consumer}.
+ */
+@FunctionalInterface
+public interface BatchHandler {
+
+    /**
+     * Handles a batch of consumed items.
+     * The array is reused for the next batch, so implementations must copy any items they keep
+     * after returning.
+     *
+     * @param items the array holding the batch; only the first {@code count} entries are valid.
+     * @param count the number of items in the batch.
+     */
+    void handleBatch(int[] items, int count);
+}
@@ -1,16 +1,40 @@
 package consumer;
 
 import buffer.ConfigurableBuffer;
+import java.util.concurrent.TimeUnit;
+import util.Histogram;
+import util.StallWatchdog;
 
 /**
  * The Consumer class consumes integer items from the buffer.
  * It sleeps for a random amount of time after consuming each item to simulate work.
+ * In batching mode it instead accumulates items into micro-batches that are handed to a
+ * {@link BatchHandler} once the batch is full or its linger time has elapsed.
+ * A consumer can be retired: it finishes the item or batch it holds and then stops. An idle
+ * consumer blocks on the buffer without polling, and retiring it interrupts that wait.
  */
 public class Consumer implements Runnable {
     private final ConfigurableBuffer buffer;
     private final String name;
     private final int sleepTime;
 
+    // Micro-batching settings; handler is null when consuming items one at a time
+    private final BatchHandler batchHandler;
+    private final int[] batch;
+    private final long lingerNanos;
+    private final Histogram batchSizes;
+    private final Histogram lingerTimes;
+
+    private volatile boolean retired;
+
+    // Lets retire() interrupt the consumer only while it waits for work, never while it holds items
+    private final Object retireLock = new Object();
+    private Thread worker; // Guarded by retireLock
+    private boolean awaitingWork; // Guarded by retireLock
+    private volatile StallWatchdog watchdog;
+    private volatile WindowedAggregator aggregator;
+    private volatile long consumedCount; // Only written by the consumer's own thread
+
     /**
      * Constructor for the Consumer class.
      *
@@ -22,27 +46,252 @@ public class Consumer implements Runnable {
         this.buffer = buffer;
         this.name = name;
         this.sleepTime = sleepTime;
+        this.batchHandler = null;
+        this.batch = null;
+        this.lingerNanos = 0;
+        this.batchSizes = null;
+        this.lingerTimes = null;
+    }
+
+    /**
+     * Constructor for a micro-batching consumer.
+     * A batch is started by the first available item and handed to the handler as soon as it
+     * holds {@code batchMax} items or {@code lingerMs} milliseconds have passed since it started.
+     *
+     * @param buffer the buffer shared by all producers and consumers.
+     * @param name the name of the consumer (used for logging).
+     * @param sleepTime the time (in milliseconds) the consumer will sleep after handling a batch.
+     * @param batchMax the maximum number of items in a batch.
+     * @param lingerMs the maximum time (in milliseconds) to wait for a batch to fill up.
+     * @param batchHandler the handler that receives each batch.
+     * @throws IllegalArgumentException if batchMax is less than 1 or lingerMs is negative.
+     */
+    public Consumer(ConfigurableBuffer buffer, String name, int sleepTime,
+                    int batchMax, int lingerMs, BatchHandler batchHandler) {
+        if (batchMax < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1.");
+        }
+        if (lingerMs < 0) {
+            throw new IllegalArgumentException("Linger time must not be negative.");
+        }
+        this.buffer = buffer;
+        this.name = name;
+        this.sleepTime = sleepTime;
+        this.batchHandler = batchHandler;
+        this.batch = new int[batchMax];
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.batchSizes = new Histogram(name + ".batch.size");
+        this.lingerTimes = new Histogram(name + ".batch.linger.ns");
     }
 
     /**
      * The run method for the consumer thread.
-     * It consumes items from the buffer until the program is stopped.
+     * It consumes items from the buffer until the program is stopped or the consumer is retired.
      */
     @Override
     public void run() {
+        synchronized (retireLock) {
+            worker = Thread.currentThread();
+        }
+        StallWatchdog stallWatchdog = watchdog;
+        if (stallWatchdog != null) {
+            stallWatchdog.watchThread(StallWatchdog.Role.CONSUMER, name, Thread.currentThread(), this::getConsumedCount);
+        }
         try {
-            while (true) {
-                // Remove an item from the buffer
-                int item = buffer.removeItem();
-
-                // Simulate consuming the item
-                System.out.println(name + " consumed item: " + item);
-
-                // Sleep for the configured time to simulate work
-                Thread.sleep(sleepTime);
+            if (batchHandler != null) {
+                consumeBatches();
+            } else {
+                consumeItems();
             }
+            System.out.println(name + " retired.");
         } catch (InterruptedException e) {
             System.out.println(name + " was interrupted while consuming.");
         }
     }
+
+    /**
+     * Consumes items one at a time until the consumer is retired.
+     * An item that has been removed from the buffer is always consumed before retiring.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private void consumeItems() throws InterruptedException {
+        while (beginAwaitWork()) {
+            // Remove an item from the buffer; retire() interrupts this wait
+            int item;
+            try {
+                item = buffer.removeItem();
+            } catch (InterruptedException e) {
+                if (retired) {
+                    break;
+                }
+                throw e;
+            } finally {
+                endAwaitWork();
+            }
+
+            // Simulate consuming the item
+            System.out.println(name + " consumed item: " + item);
+            consumedCount++;
+            WindowedAggregator windows = aggregator;
+            if (windows != null) {
+                windows.record(item);
+            }
+
+            // Sleep for the configured time to simulate work
+            Thread.sleep(sleepTime);
+        }
+    }
+
+    /**
+     * Consumes items in micro-batches until the consumer is retired.
+     * Each batch waits for its first item, then keeps draining whatever is available, waiting
+     * on the buffer only for the remainder of the linger time. A started batch is always handed
+     * to the handler before retiring.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private void consumeBatches() throws InterruptedException {
+        while (beginAwaitWork()) {
+            // Wait for the first item of the batch; retire() interrupts this wait
+            int count;
+            try {
+                count = buffer.drainTo(batch, 0, batch.length);
+            } catch (InterruptedException e) {
+                if (retired) {
+                    break;
+                }
+                throw e;
+            } finally {
+                endAwaitWork();
+            }
+            long started = System.nanoTime();
+            long elapsed = 0;
+            while (count < batch.length && elapsed < lingerNanos) {
+                int drained = buffer.drainTo(batch, count, batch.length - count,
+                        lingerNanos - elapsed, TimeUnit.NANOSECONDS);
+                count += drained;
+                elapsed = System.nanoTime() - started;
+                if (drained == 0) {
+                    break; // Linger time elapsed while the buffer was empty
+                }
+            }
+
+            batchSizes.record(count);
+            lingerTimes.record(elapsed);
+            batchHandler.handleBatch(batch, count);
+            consumedCount += count;
+            WindowedAggregator windows = aggregator;
+            if (windows != null) {
+                windows.record(batch, count);
+            }
+
+            // Sleep for the configured time to simulate work
+            Thread.sleep(sleepTime);
+        }
+    }
+
+    /**
+     * Marks that the consumer is about to wait on the buffer for work, unless it has been retired.
+     *
+     * @return false if the consumer has been retired and should stop.
+     */
+    private boolean beginAwaitWork() {
+        synchronized (retireLock) {
+            awaitingWork = !retired;
+            return awaitingWork;
+        }
+    }
+
+    /**
+     * Marks that the consumer has stopped waiting for work. An interrupt from retire() that
+     * arrived after the wait had already ended is cleared, so it cannot disturb the items the
+     * consumer now holds.
+     */
+    private void endAwaitWork() {
+        synchronized (retireLock) {
+            awaitingWork = false;
+            if (retired) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Sets the watchdog that watches this consumer for stalls once it runs.
+     *
+     * @param watchdog the watchdog, or null to not be watched.
+     */
+    public void setStallWatchdog(StallWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Sets the aggregator that computes windowed statistics over the items this consumer
+     * consumes. Several consumers can share one aggregator without contending.
+     *
+     * @param aggregator the aggregator, or null to not aggregate.
+     */
+    public void setAggregator(WindowedAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Asks the consumer to stop once it has finished the item or batch it is currently handling.
+     * An idle consumer is woken and stops right away. Items still in the buffer are left for the
+     * other consumers.
+     */
+    public void retire() {
+        synchronized (retireLock) {
+            retired = true;
+            if (awaitingWork) {
+                worker.interrupt(); // The consumer holds no item while it waits for work
+            }
+        }
+    }
+
+    /**
+     * Checks whether the consumer has been asked to retire.
+     *
+     * @return true if {@link #retire()} has been called.
+     */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Gets the name of the consumer.
+     *
+     * @return the consumer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of items this consumer has consumed so far.
+     *
+     * @return the number of consumed items.
+     */
+    public long getConsumedCount() {
+        return consumedCount;
+    }
+
+    /**
+     * Gets the distribution of batch sizes handed to the batch handler.
+     *
+     * @return the batch size histogram, or null if the consumer is not batching.
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * Gets the distribution of the time (in nanoseconds) spent lingering for each batch to fill up.
+     *
+     * @return the linger time histogram, or null if the consumer is not batching.
+     */
+    public Histogram getLingerTimes() {
+        return lingerTimes;
+    }
 }
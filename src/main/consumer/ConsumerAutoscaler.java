@@ -0,0 +1,346 @@
+package consumer;
+
+import buffer.ConfigurableBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import util.Logger;
+
+/**
+ * Grows and shrinks a pool of {@link Consumer} workers between configured bounds, driven by the
+ * depth of the buffer and the rate at which the pool drains it.
+ * <p>
+ * The buffer is sampled periodically. The pool grows by one consumer when the buffer stays at or
+ * above the high watermark for several consecutive samples, and shrinks by one when it stays at
+ * or below the low watermark and the measured drain rate could be sustained with one consumer
+ * fewer. Requiring a streak of samples between watermarks that are far apart (hysteresis) and
+ * waiting for a cool-down after each change keeps the pool from flapping.
+ * <p>
+ * Retired consumers finish the item or batch they hold before stopping, so no item is lost.
+ */
+public class ConsumerAutoscaler {
+    private final ConfigurableBuffer buffer;
+    private final Function<String, Consumer> consumerFactory;
+    private final String namePrefix;
+    private final int minConsumers;
+    private final int maxConsumers;
+
+    // Scaling settings and state, guarded by this autoscaler's monitor
+    private double highWatermark = 0.75;
+    private double lowWatermark = 0.1;
+    private int sustainSamples = 3;
+    private long cooldownNanos = TimeUnit.SECONDS.toNanos(2);
+    private final Deque<Worker> active = new ArrayDeque<>();
+    private final List<Worker> retiring = new ArrayList<>();
+    private long retiredConsumedCount; // Items consumed by workers that have stopped
+    private int nextConsumerId;
+    private int highStreak;
+    private int lowStreak;
+    private long lastSampleNanos;
+    private long lastConsumedCount;
+    private long lastScaleNanos;
+    private double drainRate; // Items per second over the last sample period
+    private double peakRatePerConsumer; // Highest drain rate per consumer seen while the buffer was backed up
+    private long scaleUpCount;
+    private long scaleDownCount;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs an autoscaler for the given buffer.
+     *
+     * @param buffer the buffer the consumers drain.
+     * @param namePrefix the prefix of the consumer names; consumers are numbered from 1.
+     * @param consumerFactory creates a consumer with the given name.
+     * @param minConsumers the minimum number of consumers, started by {@link #start}.
+     * @param maxConsumers the maximum number of consumers.
+     * @throws IllegalArgumentException if minConsumers is less than 1 or greater than maxConsumers.
+     */
+    public ConsumerAutoscaler(ConfigurableBuffer buffer, String namePrefix,
+                              Function<String, Consumer> consumerFactory, int minConsumers, int maxConsumers) {
+        if (minConsumers < 1 || minConsumers > maxConsumers) {
+            throw new IllegalArgumentException("Consumer bounds must satisfy 1 <= min <= max.");
+        }
+        this.buffer = buffer;
+        this.namePrefix = namePrefix;
+        this.consumerFactory = consumerFactory;
+        this.minConsumers = minConsumers;
+        this.maxConsumers = maxConsumers;
+    }
+
+    /**
+     * Sets the buffer fill levels, as fractions of its capacity, that trigger scaling.
+     * The pool grows while the buffer is at or above {@code high} and shrinks while it is at or below {@code low}.
+     *
+     * @param low the fill level at or below which consumers are retired.
+     * @param high the fill level at or above which consumers are added.
+     * @throws IllegalArgumentException unless 0 <= low < high <= 1.
+     */
+    public synchronized void setWatermarks(double low, double high) {
+        if (low < 0 || low >= high || high > 1) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low < high <= 1.");
+        }
+        this.lowWatermark = low;
+        this.highWatermark = high;
+    }
+
+    /**
+     * Sets how many consecutive samples must agree before the pool is resized.
+     *
+     * @param samples the number of consecutive samples.
+     * @throws IllegalArgumentException if samples is less than 1.
+     */
+    public synchronized void setSustainSamples(int samples) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("Sustain samples must be at least 1.");
+        }
+        this.sustainSamples = samples;
+    }
+
+    /**
+     * Sets the minimum time between two resizes of the pool.
+     *
+     * @param cooldown the cool-down time.
+     * @param unit the unit of the cooldown argument.
+     * @throws IllegalArgumentException if cooldown is negative.
+     */
+    public synchronized void setCooldown(long cooldown, TimeUnit unit) {
+        if (cooldown < 0) {
+            throw new IllegalArgumentException("Cool-down must not be negative.");
+        }
+        this.cooldownNanos = unit.toNanos(cooldown);
+    }
+
+    /**
+     * Starts the minimum number of consumers and begins sampling the buffer.
+     *
+     * @param period the time between two samples.
+     * @param unit the unit of the period argument.
+     * @throws IllegalArgumentException if period is not positive.
+     * @throws IllegalStateException if the autoscaler has already been started.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Sample period must be positive.");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("Autoscaler has already been started.");
+        }
+        while (active.size() < minConsumers) {
+            addConsumer();
+        }
+        lastSampleNanos = System.nanoTime();
+        lastScaleNanos = lastSampleNanos;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-Autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sample, period, period, unit);
+    }
+
+    /**
+     * Stops sampling and retires all consumers, waiting for them to finish their current items.
+     *
+     * @param timeout the maximum time to wait for the consumers to stop.
+     * @param unit the unit of the timeout argument.
+     * @return true if all consumers stopped within the timeout.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public boolean stop(long timeout, TimeUnit unit) throws InterruptedException {
+        List<Worker> stopping;
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+            while (!active.isEmpty()) {
+                Worker worker = active.pollLast();
+                worker.consumer.retire();
+                retiring.add(worker);
+            }
+            stopping = new ArrayList<>(retiring);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Worker worker : stopping) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.timedJoin(worker.thread, remaining);
+            }
+        }
+        synchronized (this) {
+            reapRetired();
+            return retiring.isEmpty();
+        }
+    }
+
+    /**
+     * Takes one sample of the buffer and resizes the pool if the scaling conditions hold.
+     * Runs on the autoscaler's thread.
+     */
+    synchronized void sample() {
+        long now = System.nanoTime();
+        long consumed = getConsumedCount();
+        long elapsed = now - lastSampleNanos;
+        drainRate = elapsed > 0 ? (consumed - lastConsumedCount) * 1e9 / elapsed : 0;
+        lastConsumedCount = consumed;
+        lastSampleNanos = now;
+
+        int depth = buffer.getSize();
+        int capacity = buffer.getCapacity();
+        double fill = capacity == 0 ? 0 : (double) depth / capacity;
+        int consumers = active.size();
+        if (fill >= highWatermark) {
+            highStreak++;
+            lowStreak = 0;
+            // The buffer is backed up, so the consumers are saturated: this is what each can do
+            // Retiring consumers may still have drained part of the period, so count them too
+            peakRatePerConsumer = Math.max(peakRatePerConsumer, drainRate / (consumers + retiring.size()));
+        } else if (fill <= lowWatermark) {
+            lowStreak++;
+            highStreak = 0;
+        } else {
+            highStreak = 0;
+            lowStreak = 0;
+        }
+
+        if (now - lastScaleNanos < cooldownNanos) {
+            return;
+        }
+        if (highStreak >= sustainSamples && consumers < maxConsumers) {
+            addConsumer();
+            scaleUpCount++;
+            logDecision("up", depth, capacity);
+        } else if (lowStreak >= sustainSamples && consumers > minConsumers
+                && (peakRatePerConsumer == 0 || drainRate < (consumers - 1) * peakRatePerConsumer)) {
+            Worker worker = active.pollLast();
+            worker.consumer.retire();
+            retiring.add(worker);
+            scaleDownCount++;
+            logDecision("down", depth, capacity);
+        } else {
+            return;
+        }
+        lastScaleNanos = now;
+        highStreak = 0;
+        lowStreak = 0;
+    }
+
+    /**
+     * Creates and starts a new consumer. Must be called while holding the autoscaler's monitor.
+     */
+    private void addConsumer() {
+        Consumer consumer = consumerFactory.apply(namePrefix + "-" + (++nextConsumerId));
+        Thread thread = new Thread(consumer, consumer.getName());
+        active.addLast(new Worker(consumer, thread));
+        thread.start();
+    }
+
+    /**
+     * Forgets retired consumers whose threads have stopped, keeping their consumed item counts.
+     * Must be called while holding the autoscaler's monitor.
+     */
+    private void reapRetired() {
+        for (Iterator<Worker> it = retiring.iterator(); it.hasNext(); ) {
+            Worker worker = it.next();
+            if (!worker.thread.isAlive()) {
+                retiredConsumedCount += worker.consumer.getConsumedCount();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Logs a scaling decision together with the measurements that led to it.
+     *
+     * @param direction "up" or "down".
+     * @param depth the buffer depth at the time of the decision.
+     * @param capacity the buffer capacity at the time of the decision.
+     */
+    private void logDecision(String direction, int depth, int capacity) {
+        Logger.info(String.format(Locale.ROOT,
+                "%s scaled %s to %d consumers (depth %d/%d, drain rate %.1f items/s, peak %.1f items/s per consumer)",
+                namePrefix, direction, active.size(), depth, capacity, drainRate, peakRatePerConsumer));
+    }
+
+    /**
+     * Gets the number of consumers that are currently taking items from the buffer.
+     *
+     * @return the number of active consumers.
+     */
+    public synchronized int getActiveConsumerCount() {
+        return active.size();
+    }
+
+    /**
+     * Gets the number of retired consumers that are still finishing their last item.
+     *
+     * @return the number of retiring consumers.
+     */
+    public synchronized int getRetiringConsumerCount() {
+        reapRetired();
+        return retiring.size();
+    }
+
+    /**
+     * Gets the total number of items consumed by all consumers of the pool, including retired ones.
+     *
+     * @return the number of consumed items.
+     */
+    public synchronized long getConsumedCount() {
+        reapRetired();
+        long consumed = retiredConsumedCount;
+        for (Worker worker : active) {
+            consumed += worker.consumer.getConsumedCount();
+        }
+        for (Worker worker : retiring) {
+            consumed += worker.consumer.getConsumedCount();
+        }
+        return consumed;
+    }
+
+    /**
+     * Gets the drain rate measured over the last sample period.
+     *
+     * @return the number of items consumed per second.
+     */
+    public synchronized double getDrainRate() {
+        return drainRate;
+    }
+
+    /**
+     * Gets how many times a consumer has been added because the buffer was backed up.
+     *
+     * @return the number of scale-up decisions.
+     */
+    public synchronized long getScaleUpCount() {
+        return scaleUpCount;
+    }
+
+    /**
+     * Gets how many times a consumer has been retired because the buffer was nearly empty.
+     *
+     * @return the number of scale-down decisions.
+     */
+    public synchronized long getScaleDownCount() {
+        return scaleDownCount;
+    }
+
+    /**
+     * A consumer together with the thread running it.
+     */
+    private static final class Worker {
+        final Consumer consumer;
+        final Thread thread;
+
+        Worker(Consumer consumer, Thread thread) {
+            this.consumer = consumer;
+            this.thread = thread;
+        }
+    }
+}
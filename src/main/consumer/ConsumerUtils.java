@@ -1,6 +1,9 @@
 package consumer;
 
+import buffer.TimedItemBuffer;
+
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class ConsumerUtils {
 
@@ -19,6 +22,21 @@ public class ConsumerUtils {
         }
     }
 
+    /**
+     * This method removes items from one of the custom buffers with error handling for empty buffers.
+     * @param buffer The buffer to remove the item from.
+     * @param timeout The timeout period for waiting for an item, in milliseconds.
+     * @return The item that was removed, or null if no item was available within the timeout.
+     */
+    public static Integer removeItemFromBuffer(TimedItemBuffer buffer, long timeout) {
+        try {
+            return buffer.poll(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
     /**
      * Starts a consumer thread to remove items from the buffer.
      * @param queue The buffer from which items will be removed.
@@ -0,0 +1,32 @@
+package consumer;
+
+import buffer.TimedItemBuffer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Callback that receives the results of a {@link WindowedAggregator} as its windows close.
+ */
+@FunctionalInterface
+public interface WindowListener {
+
+    /**
+     * Handles the result of a closed window. Called by the thread that closes the window, in
+     * window order, so implementations should hand slow work off rather than block.
+     *
+     * @param result the aggregates of the window.
+     */
+    void windowClosed(WindowResult result);
+
+    /**
+     * Creates a listener that adds one figure of every window result to a downstream buffer.
+     * Results that find the buffer full are dropped, so a slow downstream stage can neither
+     * block the aggregator nor make it buffer results.
+     *
+     * @param buffer the downstream buffer.
+     * @param metric selects the figure to add, e.g. {@code r -> (int) r.getCount()}.
+     * @return the listener.
+     */
+    static WindowListener toBuffer(TimedItemBuffer buffer, ToIntFunction<WindowResult> metric) {
+        return result -> buffer.tryAdd(metric.applyAsInt(result));
+    }
+}
@@ -0,0 +1,116 @@
+package consumer;
+
+import java.util.Locale;
+
+/**
+ * The aggregates of the items recorded in one window of a {@link WindowedAggregator}.
+ * Window bounds are in the aggregator's clock, in nanoseconds.
+ */
+public final class WindowResult {
+    private final long startNanos;
+    private final long endNanos;
+    private final long count;
+    private final long sum;
+    private final int min;
+    private final int max;
+    private final long distinct;
+
+    /**
+     * Constructs a window result.
+     *
+     * @param startNanos the start of the window (inclusive).
+     * @param endNanos the end of the window (exclusive).
+     * @param count the number of items.
+     * @param sum the sum of the items.
+     * @param min the smallest item.
+     * @param max the largest item.
+     * @param distinct the estimated number of distinct items.
+     */
+    public WindowResult(long startNanos, long endNanos, long count, long sum, int min, int max, long distinct) {
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.distinct = distinct;
+    }
+
+    /**
+     * Gets the start of the window.
+     *
+     * @return the window start (inclusive), in nanoseconds.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Gets the end of the window.
+     *
+     * @return the window end (exclusive), in nanoseconds.
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    /**
+     * Gets the number of items recorded in the window.
+     *
+     * @return the item count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the sum of the items recorded in the window.
+     *
+     * @return the sum.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Gets the smallest item recorded in the window.
+     *
+     * @return the minimum.
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * Gets the largest item recorded in the window.
+     *
+     * @return the maximum.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the mean of the items recorded in the window.
+     *
+     * @return the mean.
+     */
+    public double getMean() {
+        return (double) sum / count;
+    }
+
+    /**
+     * Gets the approximate number of distinct items recorded in the window.
+     *
+     * @return the estimated distinct count.
+     */
+    public long getDistinct() {
+        return distinct;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "window [%d, %d) ms: count=%d sum=%d min=%d max=%d mean=%.2f distinct~%d",
+                startNanos / 1_000_000, endNanos / 1_000_000, count, sum, min, max, getMean(), distinct);
+    }
+}
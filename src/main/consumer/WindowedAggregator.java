@@ -0,0 +1,410 @@
+package consumer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import util.HyperLogLog;
+
+/**
+ * Computes count, sum, min, max and an approximate distinct count of consumed items over
+ * tumbling or sliding time windows, and hands each window's result to a {@link WindowListener}.
+ * <p>
+ * Time is divided into panes one slide long, and a window spans the last {@code size / slide}
+ * panes, so a tumbling window is a sliding window whose slide equals its size. Every recording
+ * thread aggregates into partials of its own, held in primitive arrays and one
+ * {@link HyperLogLog} per open pane, so consumers never contend with each other. When a pane
+ * closes, the partials of all threads are merged into it, the window ending with that pane is
+ * emitted, and the oldest pane leaves the window. Only a few panes ahead of the last closed one
+ * are open; a thread that records further ahead first closes the panes in between. Memory is
+ * therefore fixed by the window shape and the number of threads, regardless of the input rate.
+ * <p>
+ * Items are assigned to panes by their timestamp. Items whose pane has already closed are
+ * counted as late and dropped. Windows without items are not emitted.
+ */
+public class WindowedAggregator {
+    // Partial slots per thread; threads may record into the OPEN_PANES - 1 panes after the last closed one
+    private static final int OPEN_PANES = 4;
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final long slideNanos;
+    private final int panesPerWindow;
+    private final int precision;
+    private final WindowListener listener;
+    private final List<Partial> partials = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Partial> localPartial = ThreadLocal.withInitial(this::register);
+    private volatile long closedPane = NOT_STARTED; // Only written under this aggregator's monitor
+
+    // Closed panes of the current window, indexed by pane modulo panesPerWindow; guarded by this aggregator's monitor
+    private final long[] paneCounts;
+    private final long[] paneSums;
+    private final int[] paneMins;
+    private final int[] paneMaxs;
+    private final HyperLogLog[] paneSketches;
+    private final HyperLogLog windowSketch;
+    private long windowCount;
+    private long emittedCount;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs an aggregator over tumbling windows.
+     *
+     * @param size the length of a window.
+     * @param unit the unit of the size argument.
+     * @param listener receives the result of every window that closes.
+     * @throws IllegalArgumentException if size is not positive.
+     */
+    public WindowedAggregator(long size, TimeUnit unit, WindowListener listener) {
+        this(size, size, unit, HyperLogLog.DEFAULT_PRECISION, listener);
+    }
+
+    /**
+     * Constructs an aggregator over sliding windows.
+     *
+     * @param size the length of a window.
+     * @param slide the time between the ends of two consecutive windows; equal to size for tumbling windows.
+     * @param unit the unit of the size and slide arguments.
+     * @param precision the precision of the distinct-count sketches, between 4 and 16.
+     * @param listener receives the result of every window that closes.
+     * @throws IllegalArgumentException if size or slide is not positive, size is not a multiple
+     *                                  of slide, or precision is out of range.
+     */
+    public WindowedAggregator(long size, long slide, TimeUnit unit, int precision, WindowListener listener) {
+        if (size <= 0 || slide <= 0) {
+            throw new IllegalArgumentException("Window size and slide must be positive.");
+        }
+        if (size % slide != 0) {
+            throw new IllegalArgumentException("Window size must be a multiple of the slide.");
+        }
+        this.slideNanos = unit.toNanos(slide);
+        this.panesPerWindow = (int) (size / slide);
+        this.precision = precision;
+        this.listener = listener;
+        this.paneCounts = new long[panesPerWindow];
+        this.paneSums = new long[panesPerWindow];
+        this.paneMins = new int[panesPerWindow];
+        this.paneMaxs = new int[panesPerWindow];
+        this.paneSketches = new HyperLogLog[panesPerWindow];
+        for (int i = 0; i < panesPerWindow; i++) {
+            paneSketches[i] = new HyperLogLog(precision);
+        }
+        this.windowSketch = new HyperLogLog(precision);
+    }
+
+    /**
+     * Records an item at the current time.
+     *
+     * @param item the item.
+     */
+    public void record(int item) {
+        record(item, System.nanoTime());
+    }
+
+    /**
+     * Records a batch of items at the current time, for example a batch handed to a {@link BatchHandler}.
+     *
+     * @param items the array holding the items; only the first {@code count} entries are recorded.
+     * @param count the number of items.
+     */
+    public void record(int[] items, int count) {
+        long pane = paneOf(System.nanoTime());
+        Partial partial = localPartial.get();
+        partial.lock.lock();
+        try {
+            // The closer marks a pane closed before merging the partials, so a pane that is
+            // still open here is merged after this thread releases the partial
+            if (pane <= closedPane) {
+                partial.late += count;
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                partial.add(items[i], pane);
+            }
+        } finally {
+            partial.lock.unlock();
+        }
+    }
+
+    /**
+     * Records an item at the given time.
+     *
+     * @param item the item.
+     * @param timestampNanos the time of the item, in the clock passed to {@link #advanceTo(long)}.
+     */
+    public void record(int item, long timestampNanos) {
+        long pane = paneOf(timestampNanos);
+        Partial partial = localPartial.get();
+        partial.lock.lock();
+        try {
+            if (pane <= closedPane) {
+                partial.late++;
+                return;
+            }
+            partial.add(item, pane);
+        } finally {
+            partial.lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the pane of a timestamp, closing earlier panes if it lies beyond the open ones.
+     * The pane may still close before the item is added, so callers re-check it under their partial's lock.
+     * <p>
+     * A pane is marked closed before its partials are merged, and the pane {@code OPEN_PANES}
+     * later shares its partial slot. Open panes therefore end one short of that pane, so nothing
+     * is added to a slot that is still waiting to be merged.
+     *
+     * @param timestampNanos the time of the item.
+     * @return the pane of the item.
+     */
+    private long paneOf(long timestampNanos) {
+        long pane = Math.floorDiv(timestampNanos, slideNanos);
+        if (closedPane == NOT_STARTED) {
+            begin(pane);
+        }
+        if (pane >= closedPane + OPEN_PANES) {
+            closeThrough(pane - OPEN_PANES + 1);
+        }
+        return pane;
+    }
+
+    /**
+     * Starts the aggregator at the first recorded item, so windows begin where the data does.
+     *
+     * @param pane the pane of the first item.
+     */
+    private synchronized void begin(long pane) {
+        if (closedPane == NOT_STARTED) {
+            closedPane = pane - 1;
+        }
+    }
+
+    /**
+     * Closes every pane that ends at or before the given time and emits the windows ending with them.
+     *
+     * @param nowNanos the current time, in the same clock as the recorded timestamps.
+     */
+    public void advanceTo(long nowNanos) {
+        closeThrough(Math.floorDiv(nowNanos, slideNanos) - 1);
+    }
+
+    /**
+     * Closes panes up to and including the given one.
+     *
+     * @param target the last pane to close.
+     */
+    private synchronized void closeThrough(long target) {
+        if (closedPane == NOT_STARTED) {
+            closedPane = target;
+            return;
+        }
+        while (closedPane < target) {
+            if (windowCount == 0 && target - closedPane > 1) {
+                skipIdle(target);
+                if (closedPane >= target) {
+                    return;
+                }
+            }
+            long pane = closedPane + 1;
+            closedPane = pane; // Items for this pane recorded from now on are late
+
+            // The pane that leaves the window used the same slot
+            int slot = (int) Math.floorMod(pane, (long) panesPerWindow);
+            if (paneCounts[slot] > 0) {
+                windowCount -= paneCounts[slot];
+                paneCounts[slot] = 0;
+                paneSums[slot] = 0;
+                paneSketches[slot].clear();
+            }
+            paneMins[slot] = Integer.MAX_VALUE;
+            paneMaxs[slot] = Integer.MIN_VALUE;
+            int open = (int) Math.floorMod(pane, (long) OPEN_PANES);
+            for (Partial partial : partials) {
+                partial.lock.lock();
+                try {
+                    if (partial.counts[open] > 0) {
+                        paneCounts[slot] += partial.counts[open];
+                        paneSums[slot] += partial.sums[open];
+                        paneMins[slot] = Math.min(paneMins[slot], partial.mins[open]);
+                        paneMaxs[slot] = Math.max(paneMaxs[slot], partial.maxs[open]);
+                        paneSketches[slot].merge(partial.sketches[open]);
+                        partial.reset(open);
+                    }
+                } finally {
+                    partial.lock.unlock();
+                }
+            }
+            windowCount += paneCounts[slot];
+            if (windowCount > 0) {
+                emit(pane);
+            }
+        }
+    }
+
+    /**
+     * Skips the panes before the first one any thread has recorded into, up to the target, while
+     * the window is empty. All partials are locked at once so no item can be added meanwhile;
+     * recording threads only ever hold their own partial's lock, so this cannot deadlock.
+     * Must be called while holding this aggregator's monitor.
+     *
+     * @param target the last pane to close.
+     */
+    private void skipIdle(long target) {
+        long firstPending = Long.MAX_VALUE;
+        int locked = 0;
+        try {
+            for (Partial partial : partials) {
+                partial.lock.lock();
+                locked++;
+                for (int open = 0; open < OPEN_PANES; open++) {
+                    if (partial.counts[open] > 0) {
+                        firstPending = Math.min(firstPending, partial.panes[open]);
+                    }
+                }
+            }
+            closedPane = Math.max(closedPane, Math.min(target, firstPending - 1));
+        } finally {
+            for (Partial partial : partials) {
+                if (locked-- == 0) {
+                    break;
+                }
+                partial.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Combines the panes of the window ending with the given pane and hands the result to the listener.
+     *
+     * @param lastPane the last pane of the window.
+     */
+    private void emit(long lastPane) {
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        windowSketch.clear();
+        for (int slot = 0; slot < panesPerWindow; slot++) {
+            if (paneCounts[slot] > 0) {
+                sum += paneSums[slot];
+                min = Math.min(min, paneMins[slot]);
+                max = Math.max(max, paneMaxs[slot]);
+                windowSketch.merge(paneSketches[slot]);
+            }
+        }
+        emittedCount++;
+        listener.windowClosed(new WindowResult((lastPane - panesPerWindow + 1) * slideNanos,
+                (lastPane + 1) * slideNanos, windowCount, sum, min, max, windowSketch.estimate()));
+    }
+
+    /**
+     * Starts closing windows in step with {@link System#nanoTime()}, once per slide.
+     *
+     * @throws IllegalStateException if the aggregator has already been started.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Aggregator has already been started.");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WindowedAggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> advanceTo(System.nanoTime()), slideNanos, slideNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops closing windows automatically. Windows that are still open are not emitted.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Gets the number of windows emitted.
+     *
+     * @return the number of emitted windows.
+     */
+    public synchronized long getEmittedCount() {
+        return emittedCount;
+    }
+
+    /**
+     * Gets the number of items dropped because their pane had already closed.
+     *
+     * @return the number of late items.
+     */
+    public long getLateCount() {
+        long late = 0;
+        for (Partial partial : partials) {
+            partial.lock.lock();
+            try {
+                late += partial.late;
+            } finally {
+                partial.lock.unlock();
+            }
+        }
+        return late;
+    }
+
+    /**
+     * Creates the calling thread's partial and adds it to the list merged at pane close.
+     * Holding the monitor keeps new partials out while {@link #skipIdle(long)} holds all the others.
+     *
+     * @return the new partial.
+     */
+    private synchronized Partial register() {
+        Partial partial = new Partial(precision);
+        partials.add(partial);
+        return partial;
+    }
+
+    /**
+     * One thread's aggregates for the open panes, indexed by pane modulo {@link #OPEN_PANES}.
+     * Written by its thread and read by the closer, both under the partial's own lock.
+     */
+    private static final class Partial {
+        final ReentrantLock lock = new ReentrantLock();
+        final long[] panes = new long[OPEN_PANES];
+        final long[] counts = new long[OPEN_PANES];
+        final long[] sums = new long[OPEN_PANES];
+        final int[] mins = new int[OPEN_PANES];
+        final int[] maxs = new int[OPEN_PANES];
+        final HyperLogLog[] sketches = new HyperLogLog[OPEN_PANES];
+        long late;
+
+        Partial(int precision) {
+            for (int i = 0; i < OPEN_PANES; i++) {
+                sketches[i] = new HyperLogLog(precision);
+                reset(i);
+            }
+        }
+
+        void add(int item, long pane) {
+            int slot = (int) Math.floorMod(pane, (long) OPEN_PANES);
+            panes[slot] = pane;
+            counts[slot]++;
+            sums[slot] += item;
+            if (item < mins[slot]) {
+                mins[slot] = item;
+            }
+            if (item > maxs[slot]) {
+                maxs[slot] = item;
+            }
+            sketches[slot].add(item);
+        }
+
+        void reset(int slot) {
+            counts[slot] = 0;
+            sums[slot] = 0;
+            mins[slot] = Integer.MAX_VALUE;
+            maxs[slot] = Integer.MIN_VALUE;
+            sketches[slot].clear();
+        }
+    }
+}
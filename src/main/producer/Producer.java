@@ -1,15 +1,23 @@
 package producer;
 
 import buffer.ConfigurableBuffer;
+import java.io.IOException;
+import util.Logger;
+import util.StallWatchdog;
 
 /**
  * The Producer class produces integer items and adds them to the buffer.
  * It sleeps for a random amount of time after adding each item to simulate work.
+ * In capture mode every produced item is also appended to a {@link JournalWriter}, so that the
+ * traffic can later be replayed by a {@link ReplayProducer}.
  */
 public class Producer implements Runnable {
     private final ConfigurableBuffer buffer;
     private final String name;
     private final int sleepTime;
+    private volatile StallWatchdog watchdog;
+    private volatile JournalWriter journal;
+    private volatile long producedCount; // Only written by the producer's own thread
 
     /**
      * Constructor for the Producer class.
@@ -24,20 +32,68 @@ public class Producer implements Runnable {
         this.sleepTime = sleepTime;
     }
 
+    /**
+     * Sets the watchdog that watches this producer for stalls once it runs.
+     *
+     * @param watchdog the watchdog, or null to not be watched.
+     */
+    public void setStallWatchdog(StallWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Sets the journal that captures the items this producer produces. Several producers can
+     * share one journal. A journal that fails is logged and no longer written to.
+     *
+     * @param journal the journal, or null to not capture.
+     */
+    public void setJournal(JournalWriter journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Gets the name of the producer.
+     *
+     * @return the producer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of items this producer has handed to the buffer, including items the
+     * buffer's overflow policy rejected.
+     *
+     * @return the number of produced items.
+     */
+    public long getProducedCount() {
+        return producedCount;
+    }
+
     /**
      * The run method for the producer thread.
      * It produces items and adds them to the buffer until the program is stopped.
      */
     @Override
     public void run() {
+        StallWatchdog stallWatchdog = watchdog;
+        if (stallWatchdog != null) {
+            stallWatchdog.watchThread(StallWatchdog.Role.PRODUCER, name, Thread.currentThread(), this::getProducedCount);
+        }
         try {
             while (true) {
                 // Simulate producing an item (just a random number)
                 int item = (int) (Math.random() * 100);
                 System.out.println(name + " is producing item: " + item);
+                capture(item);
 
-                // Add the item to the buffer
-                buffer.addItem(item);
+                // Add the item to the buffer; the buffer's overflow policy may reject it when full
+                try {
+                    buffer.addItem(item);
+                } catch (IllegalStateException e) {
+                    System.out.println(name + " could not add item: " + e.getMessage());
+                }
+                producedCount++;
 
                 // Sleep for the configured time to simulate work
                 Thread.sleep(sleepTime);
@@ -46,4 +102,23 @@ public class Producer implements Runnable {
             System.out.println(name + " was interrupted while producing.");
         }
     }
+
+    /**
+     * Appends a produced item to the journal, if one is set. A failing journal is detached, so
+     * that capturing never stops production.
+     *
+     * @param item the produced item.
+     */
+    private void capture(int item) {
+        JournalWriter capture = journal;
+        if (capture == null) {
+            return;
+        }
+        try {
+            capture.append(item);
+        } catch (IOException | IllegalStateException e) {
+            Logger.warn(name + " stopped capturing to " + capture.getPath() + ": " + e.getMessage());
+            journal = null;
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package producer;
 
+import buffer.TimedItemBuffer;
+
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class ProducerUtils {
 
@@ -20,6 +23,22 @@ public class ProducerUtils {
         }
     }
 
+    /**
+     * This method adds items to one of the custom buffers with error handling for full buffers.
+     * @param buffer The buffer to add the item to.
+     * @param item The item to add to the buffer.
+     * @param timeout The timeout period for adding the item, in milliseconds.
+     * @return true if item was successfully added, false otherwise.
+     */
+    public static boolean addItemToBuffer(TimedItemBuffer buffer, int item, long timeout) {
+        try {
+            return buffer.offer(item, timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     /**
      * Starts a producer thread to add items to the buffer.
      * @param queue The buffer where items will be added.
@@ -0,0 +1,191 @@
+package producer;
+
+import buffer.ItemBuffer;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+import util.Histogram;
+import util.Logger;
+
+/**
+ * Replays a journal captured by a {@link JournalWriter} into any buffer, so that buffer changes
+ * can be measured against recorded production traffic.
+ * <p>
+ * The journal is memory-mapped rather than read through a stream. Items are added at their
+ * original pace, at a multiple of it, or as fast as the buffer accepts them. Adding blocks while
+ * the buffer is full, so a slow buffer makes the replay fall behind the journal's schedule; the
+ * delay of each item behind its scheduled time is recorded in a histogram.
+ */
+public class ReplayProducer implements Runnable {
+    /** Replay speed that adds items as fast as the buffer accepts them. */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    // Journals larger than this are mapped in several windows
+    private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+    // Waits shorter than this are spun rather than parked, to add items close to their scheduled time
+    private static final long SPIN_NANOS = 50_000;
+
+    private final Path journal;
+    private final ItemBuffer buffer;
+    private final String name;
+    private final double speed;
+    private final Histogram lag;
+    private volatile long replayedCount; // Only written by the replaying thread
+
+    /**
+     * Constructor for the ReplayProducer class.
+     *
+     * @param journal the journal file to replay.
+     * @param buffer the buffer to add the items to.
+     * @param name the name of the producer (used for logging).
+     * @param speed the replay speed: 1 for the original pace, 2 for twice as fast, or {@link #MAX_SPEED}.
+     * @throws IllegalArgumentException if speed is not positive.
+     */
+    public ReplayProducer(Path journal, ItemBuffer buffer, String name, double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be positive.");
+        }
+        this.journal = journal;
+        this.buffer = buffer;
+        this.name = name;
+        this.speed = speed;
+        this.lag = new Histogram(name + ".replay.lag.ns");
+    }
+
+    /**
+     * The run method for the producer thread.
+     * It replays the journal once and then stops.
+     */
+    @Override
+    public void run() {
+        try {
+            long count = replay();
+            System.out.println(name + " replayed " + count + " items.");
+        } catch (InterruptedException e) {
+            System.out.println(name + " was interrupted while replaying.");
+        } catch (IOException e) {
+            Logger.error(name + " could not replay " + journal + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the journal in the calling thread. A record cut off at the end of the journal, as
+     * left by a capture that was not closed, ends the replay.
+     *
+     * @return the number of items added to the buffer.
+     * @throws IOException if the journal cannot be read or is not a journal.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public long replay() throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long base = 0;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAP_WINDOW_BYTES));
+            if (size < JournalWriter.HEADER_BYTES || map.getInt() != JournalWriter.MAGIC) {
+                throw new IOException("Not a journal.");
+            }
+
+            long count = 0;
+            long journalNanos = 0;
+            long start = System.nanoTime();
+            while (true) {
+                // Move the window forward before a record could cross its end
+                if (map.remaining() < JournalWriter.MAX_RECORD_BYTES && base + map.limit() < size) {
+                    base += map.position();
+                    map = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(size - base, MAP_WINDOW_BYTES));
+                }
+                if (!map.hasRemaining()) {
+                    break;
+                }
+                int item;
+                try {
+                    journalNanos += getVarLong(map);
+                    long zigzag = getVarLong(map);
+                    item = (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+                } catch (BufferUnderflowException e) {
+                    break;
+                }
+
+                if (speed != MAX_SPEED) {
+                    long due = start + (long) (journalNanos / speed);
+                    awaitTime(due);
+                    lag.record(System.nanoTime() - due);
+                }
+                buffer.addItem(item);
+                replayedCount = ++count;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Gets the name of the producer.
+     *
+     * @return the producer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of items replayed into the buffer so far.
+     *
+     * @return the number of replayed items.
+     */
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    /**
+     * Gets the distribution of how far (in nanoseconds) items were added behind their scheduled
+     * time. Nothing is recorded at {@link #MAX_SPEED}.
+     *
+     * @return the lag histogram.
+     */
+    public Histogram getLag() {
+        return lag;
+    }
+
+    /**
+     * Waits until the given time, parking for most of the wait and spinning for the rest.
+     *
+     * @param due the time to wait for, in {@link System#nanoTime()} units.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private static void awaitTime(long due) throws InterruptedException {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Reads an unsigned varint written by the journal writer.
+     *
+     * @param map the mapped journal, positioned at the varint.
+     * @return the value.
+     * @throws IOException if the varint is longer than a long.
+     */
+    private static long getVarLong(MappedByteBuffer map) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = map.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt journal record.");
+    }
+}
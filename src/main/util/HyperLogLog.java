@@ -0,0 +1,144 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch that estimates the number of distinct int values seen.
+ * <p>
+ * Each value is hashed to 64 bits; the first {@code precision} bits select one of
+ * {@code 2^precision} one-byte registers, which keeps the longest run of leading zeros seen in
+ * the remaining bits. The memory use is fixed regardless of how many values are added, and the
+ * standard error of the estimate is about {@code 1.04 / sqrt(2^precision)}, e.g. 3.3% with the
+ * default precision of 10 (1 KiB). Sketches of the same precision can be merged, which gives the
+ * sketch of the union of their inputs. Not thread-safe.
+ */
+public class HyperLogLog {
+
+    /** The default precision, giving 1024 registers. */
+    public static final int DEFAULT_PRECISION = 10;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Constructs an empty sketch with the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param precision the number of hash bits used to select a register, between 4 and 16.
+     * @throws IllegalArgumentException if precision is out of range.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 4 and 16.");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a value to the sketch.
+     *
+     * @param value the value.
+     */
+    public void add(int value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - precision));
+        // The sentinel bit bounds the run of zeros when all remaining bits are zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Adds every value of another sketch to this one.
+     *
+     * @param other the sketch to merge in.
+     * @throws IllegalArgumentException if the sketches have different precisions.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of different precision.");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added.
+     *
+     * @return the estimated number of distinct values.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros); // Linear counting is more accurate for small sets
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Checks whether no value has been added since the sketch was created or cleared.
+     *
+     * @return true if the sketch is empty.
+     */
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all values from the sketch.
+     */
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    /**
+     * Gets the precision of the sketch.
+     *
+     * @return the number of hash bits used to select a register.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Hashes a value to 64 well-mixed bits (the MurmurHash3 finalizer).
+     *
+     * @param value the value.
+     * @return the hash.
+     */
+    private static long mix(int value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
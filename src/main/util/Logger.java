@@ -8,11 +8,14 @@ import java.util.Date;
  * A custom logger for the Producer-Consumer simulation.
  * This logger writes logs to both the console and a file.
  * It supports different log levels (INFO, ERROR, etc.) and custom log formatting.
+ * The file is {@code app.log} in the working directory unless the system property
+ * {@code logger.file} or {@link #setLogFile(String)} names another one; an empty
+ * property value logs to the console only.
  */
 public class Logger {
 
-    // Log file path
-    private static final String LOG_FILE_PATH = "app.log";
+    // Log file path, or null to log to the console only
+    private static volatile String logFilePath = toPath(System.getProperty("logger.file", "app.log"));
     
     // Enumeration for log levels
     public enum LogLevel {
@@ -35,6 +38,20 @@ public class Logger {
         currentLogLevel = logLevel;
     }
 
+    /**
+     * Sets the file that log messages are appended to.
+     * Tests use this to keep their log output out of the working directory.
+     *
+     * @param path the log file, or null to log to the console only.
+     */
+    public static void setLogFile(String path) {
+        logFilePath = toPath(path);
+    }
+
+    private static String toPath(String path) {
+        return path == null || path.isEmpty() ? null : path;
+    }
+
     /**
      * Logs a message with a specific log level to both the console and the log file.
      *
@@ -93,7 +110,11 @@ public class Logger {
      * @param logMessage the message to write to the log file.
      */
     private static void writeToFile(String logMessage) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(LOG_FILE_PATH, true))) {
+        String path = logFilePath;
+        if (path == null) {
+            return;
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path, true))) {
             writer.write(logMessage);
             writer.newLine();
         } catch (IOException e) {
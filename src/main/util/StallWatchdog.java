@@ -0,0 +1,457 @@
+package util;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects producers, consumers and buffers that stop making progress, and logs diagnostics.
+ * <p>
+ * Every watched thread and buffer exposes a progress counter, such as the number of items it
+ * produced, consumed or passed on. A daemon thread reads the counters periodically, which costs
+ * the watched threads nothing beyond maintaining them. A stall is reported when a buffer has
+ * not passed on an item for longer than the threshold, or when a watched thread has not made
+ * progress for that long while it is not simply waiting on one of the watched buffers (an idle
+ * consumer of an empty buffer is not stalled, the producers feeding it are).
+ * <p>
+ * The report, written through {@link Logger#warn(String)}, contains the depth of each stalled
+ * buffer, the owner of its monitor and the threads waiting on or blocked by it, the stacks of
+ * the involved threads and of the monitor owners, and which side is the bottleneck. Each stall
+ * episode is reported once, when the first thread or buffer stops making progress; others that
+ * stall while it lasts are not reported again. When progress resumes, it is logged through
+ * {@link Logger#info(String)}, and the next stall starts a new episode.
+ * The counters and depth suppliers are read without taking any lock, so the watchdog keeps
+ * working when a buffer's monitor is held forever.
+ */
+public class StallWatchdog {
+
+    /**
+     * The side of a buffer a watched thread is on.
+     */
+    public enum Role {
+        PRODUCER,
+        CONSUMER
+    }
+
+    /**
+     * The side that keeps the items from flowing.
+     */
+    public enum Bottleneck {
+        /** A buffer is empty, or producers are stalled outside the buffer. */
+        PRODUCERS,
+        /** A buffer is full, or consumers are stalled outside the buffer. */
+        CONSUMERS,
+        /** A thread holds a buffer's monitor while others are blocked on it. */
+        BUFFER_MONITOR,
+        /** Both sides, or neither side, are stalled. */
+        UNKNOWN
+    }
+
+    private static final int MAX_STACK_DEPTH = 16;
+
+    private final long thresholdNanos;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<WatchedThread> watchedThreads = new CopyOnWriteArrayList<>();
+    private final List<WatchedBuffer> watchedBuffers = new CopyOnWriteArrayList<>();
+
+    // Guarded by this watchdog's monitor
+    private ScheduledExecutorService scheduler;
+    private long stallCount;
+    private Bottleneck lastBottleneck;
+    private String lastReport;
+
+    /**
+     * Constructs a watchdog.
+     *
+     * @param threshold how long a thread or buffer may go without progress before it is reported.
+     * @param unit the unit of the threshold argument.
+     * @throws IllegalArgumentException if threshold is not positive.
+     */
+    public StallWatchdog(long threshold, TimeUnit unit) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Stall threshold must be positive.");
+        }
+        this.thresholdNanos = unit.toNanos(threshold);
+    }
+
+    /**
+     * Watches a buffer. The suppliers are called from the watchdog thread and must not block.
+     *
+     * @param name the name of the buffer (used in reports).
+     * @param monitor the object whose monitor guards the buffer, used to find its waiting threads and owner.
+     * @param depth supplies the number of items in the buffer.
+     * @param capacity supplies the maximum number of items the buffer can hold.
+     * @param progress supplies a counter that increases whenever an item leaves the buffer.
+     */
+    public void watchBuffer(String name, Object monitor, IntSupplier depth, IntSupplier capacity, LongSupplier progress) {
+        watchedBuffers.add(new WatchedBuffer(name, monitor, depth, capacity, progress, System.nanoTime()));
+    }
+
+    /**
+     * Watches a producer or consumer thread until it terminates.
+     *
+     * @param role which side of the buffers the thread is on.
+     * @param name the name of the producer or consumer (used in reports).
+     * @param thread the thread to watch.
+     * @param progress supplies a counter that increases whenever the thread produces or consumes an item.
+     */
+    public void watchThread(Role role, String name, Thread thread, LongSupplier progress) {
+        watchedThreads.add(new WatchedThread(role, name, thread, progress, System.nanoTime()));
+    }
+
+    /**
+     * Starts checking for stalls four times per threshold.
+     *
+     * @throws IllegalStateException if the watchdog has already been started.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            throw new IllegalStateException("Watchdog has already been started.");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "StallWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), thresholdNanos / 4);
+        scheduler.scheduleAtFixedRate(this::check, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops checking for stalls.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Checks all watched threads and buffers once, and reports a new stall if there is one.
+     * Called periodically once the watchdog is started.
+     */
+    public synchronized void check() {
+        long now = System.nanoTime();
+        boolean ongoing = isStalled();
+        boolean newStall = false;
+        for (WatchedBuffer buffer : watchedBuffers) {
+            long progress = buffer.progress.getAsLong();
+            if (progress != buffer.lastProgress) {
+                buffer.lastProgress = progress;
+                resumed(buffer.name, buffer, now);
+            } else if (!buffer.stalled && now - buffer.lastProgressNanos >= thresholdNanos) {
+                buffer.stalled = true;
+                newStall = true;
+            }
+        }
+        long[] candidates = null;
+        for (WatchedThread watched : watchedThreads) {
+            if (watched.thread.getState() == Thread.State.TERMINATED) {
+                watchedThreads.remove(watched);
+                continue;
+            }
+            long progress = watched.progress.getAsLong();
+            if (progress != watched.lastProgress) {
+                watched.lastProgress = progress;
+                resumed(watched.name, watched, now);
+            } else if (!watched.stalled && now - watched.lastProgressNanos >= thresholdNanos) {
+                candidates = append(candidates, watched.thread.getId());
+            }
+        }
+        if (candidates != null) {
+            // Only threads that are stuck somewhere other than waiting on a watched buffer are stalled
+            for (ThreadInfo info : threads.getThreadInfo(candidates, 0)) {
+                if (info != null && !isWaitingOnBuffer(info)) {
+                    for (WatchedThread watched : watchedThreads) {
+                        if (watched.thread.getId() == info.getThreadId()) {
+                            watched.stalled = true;
+                            newStall = true;
+                        }
+                    }
+                }
+            }
+        }
+        if (newStall && !ongoing) {
+            report(now);
+        }
+    }
+
+    /**
+     * Checks whether any watched thread or buffer is currently stalled.
+     *
+     * @return true if a stall episode is ongoing.
+     */
+    private boolean isStalled() {
+        for (WatchedBuffer buffer : watchedBuffers) {
+            if (buffer.stalled) {
+                return true;
+            }
+        }
+        for (WatchedThread watched : watchedThreads) {
+            if (watched.stalled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ends the stall of a thread or buffer that made progress again.
+     *
+     * @param name the name of the thread or buffer.
+     * @param watched its progress state.
+     * @param now the current time.
+     */
+    private void resumed(String name, Watched watched, long now) {
+        if (watched.stalled) {
+            watched.stalled = false;
+            Logger.info(String.format(Locale.ROOT, "Stall watchdog: %s resumed after %d ms without progress.",
+                    name, TimeUnit.NANOSECONDS.toMillis(now - watched.lastProgressNanos)));
+        }
+        watched.lastProgressNanos = now;
+    }
+
+    /**
+     * Captures the state of all stalled threads and buffers, decides the bottleneck and logs the report.
+     *
+     * @param now the current time.
+     */
+    private void report(long now) {
+        Map<Long, ThreadInfo> infos = new HashMap<>();
+        for (ThreadInfo info : threads.dumpAllThreads(false, false, MAX_STACK_DEPTH)) {
+            infos.put(info.getThreadId(), info);
+        }
+
+        StringBuilder details = new StringBuilder();
+        Bottleneck bottleneck = null;
+        String reason = null;
+        for (WatchedBuffer buffer : watchedBuffers) {
+            if (!buffer.stalled) {
+                continue;
+            }
+            int depth = buffer.depth.getAsInt();
+            int capacity = buffer.capacity.getAsInt();
+            int waiting = 0;
+            int blocked = 0;
+            ThreadInfo owner = null;
+            for (ThreadInfo info : infos.values()) {
+                if (!isOn(info.getLockInfo(), buffer.monitor)) {
+                    continue;
+                }
+                if (info.getThreadState() == Thread.State.BLOCKED) {
+                    blocked++;
+                    owner = infos.get(info.getLockOwnerId());
+                } else {
+                    waiting++;
+                }
+            }
+            details.append(String.format(Locale.ROOT,
+                    "%n  Buffer %s: depth %d/%d, no progress for %d ms, monitor owner: %s, %d waiting, %d blocked",
+                    buffer.name, depth, capacity, TimeUnit.NANOSECONDS.toMillis(now - buffer.lastProgressNanos),
+                    owner == null ? "none" : owner.getThreadName(), waiting, blocked));
+            if (owner != null) {
+                appendThread(details, "monitor owner", owner);
+            }
+
+            Bottleneck verdict;
+            String because;
+            if (owner != null) {
+                verdict = Bottleneck.BUFFER_MONITOR;
+                because = owner.getThreadName() + " holds the monitor of " + buffer.name;
+            } else if (depth >= capacity) {
+                verdict = Bottleneck.CONSUMERS;
+                because = buffer.name + " is full";
+            } else if (depth == 0) {
+                verdict = Bottleneck.PRODUCERS;
+                because = buffer.name + " is empty";
+            } else {
+                verdict = stalledSide();
+                because = buffer.name + " is partly filled";
+            }
+            bottleneck = bottleneck == null || bottleneck == verdict ? verdict : Bottleneck.UNKNOWN;
+            reason = reason == null ? because : reason + "; " + because;
+        }
+        boolean bufferStalled = bottleneck != null;
+        if (!bufferStalled) {
+            bottleneck = stalledSide();
+            reason = "a watched thread stopped making progress";
+        }
+
+        // Every watched thread is involved when items stopped flowing through a buffer
+        for (WatchedThread watched : watchedThreads) {
+            if (watched.stalled || bufferStalled) {
+                ThreadInfo info = infos.get(watched.thread.getId());
+                if (info != null) {
+                    appendThread(details, String.format(Locale.ROOT, "%s %s, no progress for %d ms%s",
+                            watched.role, watched.name, TimeUnit.NANOSECONDS.toMillis(now - watched.lastProgressNanos),
+                            watched.stalled ? ", stalled" : ""), info);
+                }
+            }
+        }
+
+        stallCount++;
+        lastBottleneck = bottleneck;
+        lastReport = "Stall detected. Bottleneck: " + bottleneck + " (" + reason + ")." + details;
+        Logger.warn(lastReport);
+    }
+
+    /**
+     * Decides the bottleneck from the roles of the stalled threads.
+     *
+     * @return PRODUCERS or CONSUMERS if only threads of that side are stalled, UNKNOWN otherwise.
+     */
+    private Bottleneck stalledSide() {
+        boolean producers = false;
+        boolean consumers = false;
+        for (WatchedThread watched : watchedThreads) {
+            if (watched.stalled) {
+                producers |= watched.role == Role.PRODUCER;
+                consumers |= watched.role == Role.CONSUMER;
+            }
+        }
+        return producers == consumers ? Bottleneck.UNKNOWN : producers ? Bottleneck.PRODUCERS : Bottleneck.CONSUMERS;
+    }
+
+    /**
+     * Appends a thread's state and stack to a report.
+     *
+     * @param details the report.
+     * @param title the line describing the thread.
+     * @param info the thread's state.
+     */
+    private static void appendThread(StringBuilder details, String title, ThreadInfo info) {
+        details.append(String.format(Locale.ROOT, "%n  %s [%s] %s", title, info.getThreadName(), info.getThreadState()));
+        if (info.getLockName() != null) {
+            details.append(" on ").append(info.getLockName());
+        }
+        if (info.getLockOwnerName() != null) {
+            details.append(" owned by ").append(info.getLockOwnerName());
+        }
+        for (StackTraceElement frame : info.getStackTrace()) {
+            details.append(System.lineSeparator()).append("      at ").append(frame);
+        }
+    }
+
+    /**
+     * Checks whether a thread is waiting for, or blocked on, the monitor of a watched buffer.
+     *
+     * @param info the thread's state.
+     * @return true if the thread is parked on a watched buffer.
+     */
+    private boolean isWaitingOnBuffer(ThreadInfo info) {
+        for (WatchedBuffer buffer : watchedBuffers) {
+            if (isOn(info.getLockInfo(), buffer.monitor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a lock is the monitor of the given object.
+     *
+     * @param lock the lock a thread waits for, or null.
+     * @param monitor the object.
+     * @return true if the lock is the object's monitor.
+     */
+    private static boolean isOn(LockInfo lock, Object monitor) {
+        return lock != null && lock.getIdentityHashCode() == System.identityHashCode(monitor)
+                && lock.getClassName().equals(monitor.getClass().getName());
+    }
+
+    /**
+     * Appends a thread id to an array.
+     *
+     * @param ids the array, or null.
+     * @param id the id to append.
+     * @return a new array holding the ids followed by the new id.
+     */
+    private static long[] append(long[] ids, long id) {
+        long[] grown = ids == null ? new long[1] : Arrays.copyOf(ids, ids.length + 1);
+        grown[grown.length - 1] = id;
+        return grown;
+    }
+
+    /**
+     * Gets the number of stalls reported so far.
+     *
+     * @return the number of reports.
+     */
+    public synchronized long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Gets the bottleneck named in the last report.
+     *
+     * @return the last bottleneck, or null if no stall has been reported.
+     */
+    public synchronized Bottleneck getLastBottleneck() {
+        return lastBottleneck;
+    }
+
+    /**
+     * Gets the text of the last report.
+     *
+     * @return the last report, or null if no stall has been reported.
+     */
+    public synchronized String getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Progress state of a watched thread or buffer, only accessed under the watchdog's monitor.
+     */
+    private static class Watched {
+        long lastProgress;
+        long lastProgressNanos;
+        boolean stalled;
+    }
+
+    private static final class WatchedThread extends Watched {
+        final Role role;
+        final String name;
+        final Thread thread;
+        final LongSupplier progress;
+
+        WatchedThread(Role role, String name, Thread thread, LongSupplier progress, long now) {
+            this.role = role;
+            this.name = name;
+            this.thread = thread;
+            this.progress = progress;
+            this.lastProgress = progress.getAsLong();
+            this.lastProgressNanos = now;
+        }
+    }
+
+    private static final class WatchedBuffer extends Watched {
+        final String name;
+        final Object monitor;
+        final IntSupplier depth;
+        final IntSupplier capacity;
+        final LongSupplier progress;
+
+        WatchedBuffer(String name, Object monitor, IntSupplier depth, IntSupplier capacity, LongSupplier progress, long now) {
+            this.name = name;
+            this.monitor = monitor;
+            this.depth = depth;
+            this.capacity = capacity;
+            this.progress = progress;
+            this.lastProgress = progress.getAsLong();
+            this.lastProgressNanos = now;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A hierarchical hashed timing wheel for int payloads, measured in abstract ticks.
+ * <p>
+ * The wheel has several levels of 64 buckets. Level {@code n} covers deadlines up to
+ * {@code 64^(n+1)} ticks ahead, so each bucket at level {@code n} spans {@code 64^n} ticks.
+ * Whenever level 0 completes a revolution, the next bucket of level 1 is cascaded into the lower
+ * levels (and so on up the hierarchy). A timer therefore moves at most once per level, and
+ * adding and cancelling timers takes constant time regardless of how many are pending.
+ * <p>
+ * Timers live in parallel primitive arrays linked into doubly linked bucket lists, and freed
+ * entries are recycled, so a pending timer costs no objects. Cancellation uses a handle that
+ * combines the entry index with a generation, which makes cancelling a timer that already fired
+ * harmless. Not thread-safe.
+ */
+public class TimingWheel {
+
+    /**
+     * Receives the timers that expire while the wheel advances.
+     */
+    @FunctionalInterface
+    public interface ExpiryHandler {
+        /**
+         * Called for each expired timer.
+         *
+         * @param payload the payload the timer was added with.
+         * @param tag the tag the timer was added with.
+         */
+        void expired(int payload, int tag);
+    }
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6; // 2^36 ticks, e.g. more than two years at one tick per millisecond
+    private static final long MAX_DELTA = (1L << (LEVELS * BITS)) - 1;
+
+    private final int[] heads = new int[LEVELS * SLOTS];
+
+    // Timer entries; bucket is -1 for free entries, which are chained through next
+    private int[] payloads;
+    private int[] tags;
+    private long[] deadlines;
+    private int[] next;
+    private int[] prev;
+    private int[] buckets;
+    private int[] generations;
+    private int allocated;
+    private int freeHead = -1;
+    private int size;
+    private long nextTick;
+
+    /**
+     * Constructs a wheel that can hold the given number of timers without growing.
+     *
+     * @param initialCapacity the number of timers the wheel should hold without resizing.
+     */
+    public TimingWheel(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        payloads = new int[capacity];
+        tags = new int[capacity];
+        deadlines = new long[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        buckets = new int[capacity];
+        generations = new int[capacity];
+        Arrays.fill(heads, -1);
+    }
+
+    /**
+     * Adds a timer. A deadline that has already passed fires on the next tick processed.
+     *
+     * @param deadline the tick at which the timer fires.
+     * @param payload the payload handed to the expiry handler.
+     * @param tag a caller-defined value handed to the expiry handler.
+     * @return a handle that can be passed to {@link #cancel(long)}.
+     */
+    public long add(long deadline, int payload, int tag) {
+        int timer = allocate();
+        payloads[timer] = payload;
+        tags[timer] = tag;
+        deadlines[timer] = deadline;
+        link(timer);
+        size++;
+        return ((long) generations[timer] << 32) | timer;
+    }
+
+    /**
+     * Cancels a pending timer.
+     *
+     * @param handle the handle returned when the timer was added.
+     * @return true if the timer was pending and has been cancelled, false if it already fired
+     *         or was cancelled before.
+     */
+    public boolean cancel(long handle) {
+        int timer = (int) handle;
+        if (timer < 0 || timer >= allocated || generations[timer] != (int) (handle >>> 32) || buckets[timer] < 0) {
+            return false;
+        }
+        unlink(timer);
+        release(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to and including the given one, handing expired timers to the handler.
+     * An empty wheel skips ahead without visiting the ticks in between.
+     *
+     * @param tick the last tick to process.
+     * @param handler receives the expired timers, in no particular order within a tick.
+     */
+    public void advanceTo(long tick, ExpiryHandler handler) {
+        while (nextTick <= tick) {
+            if (size == 0) {
+                nextTick = tick + 1;
+                return;
+            }
+            long current = nextTick;
+            int index = (int) (current & MASK);
+            if (index == 0) {
+                // Level 0 completed a revolution: move the next bucket of each higher level down
+                for (int level = 1; level < LEVELS; level++) {
+                    int levelIndex = (int) ((current >>> (level * BITS)) & MASK);
+                    cascade(level * SLOTS + levelIndex);
+                    if (levelIndex != 0) {
+                        break;
+                    }
+                }
+            }
+            int timer = heads[index];
+            heads[index] = -1;
+            nextTick = current + 1; // Timers added by the handler belong to later ticks
+            while (timer >= 0) {
+                int following = next[timer];
+                int payload = payloads[timer];
+                int tag = tags[timer];
+                release(timer);
+                size--;
+                handler.expired(payload, tag);
+                timer = following;
+            }
+        }
+    }
+
+    /**
+     * Gets the next tick the wheel will process.
+     *
+     * @return the next tick.
+     */
+    public long getNextTick() {
+        return nextTick;
+    }
+
+    /**
+     * Gets the number of pending timers.
+     *
+     * @return the number of timers that have neither fired nor been cancelled.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Re-links every timer of a bucket relative to the current tick.
+     *
+     * @param bucket the bucket to empty.
+     */
+    private void cascade(int bucket) {
+        int timer = heads[bucket];
+        heads[bucket] = -1;
+        while (timer >= 0) {
+            int following = next[timer];
+            link(timer);
+            timer = following;
+        }
+    }
+
+    /**
+     * Puts a timer into the bucket matching its distance from the next tick.
+     *
+     * @param timer the timer entry.
+     */
+    private void link(int timer) {
+        long deadline = Math.max(deadlines[timer], nextTick);
+        long delta = deadline - nextTick;
+        if (delta > MAX_DELTA) {
+            // Park it in the furthest bucket; it is re-linked with its real deadline when cascaded
+            delta = MAX_DELTA;
+            deadline = nextTick + MAX_DELTA;
+        }
+        int level = delta == 0 ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / BITS;
+        int bucket = level * SLOTS + (int) ((deadline >>> (level * BITS)) & MASK);
+        int head = heads[bucket];
+        next[timer] = head;
+        prev[timer] = -1;
+        if (head >= 0) {
+            prev[head] = timer;
+        }
+        heads[bucket] = timer;
+        buckets[timer] = bucket;
+    }
+
+    /**
+     * Removes a timer from its bucket.
+     *
+     * @param timer the timer entry.
+     */
+    private void unlink(int timer) {
+        int before = prev[timer];
+        int after = next[timer];
+        if (before >= 0) {
+            next[before] = after;
+        } else {
+            heads[buckets[timer]] = after;
+        }
+        if (after >= 0) {
+            prev[after] = before;
+        }
+    }
+
+    /**
+     * Takes a free timer entry, growing the entry arrays if all are in use.
+     *
+     * @return the index of the entry.
+     */
+    private int allocate() {
+        if (freeHead >= 0) {
+            int timer = freeHead;
+            freeHead = next[timer];
+            return timer;
+        }
+        if (allocated == payloads.length) {
+            int capacity = payloads.length * 2;
+            payloads = Arrays.copyOf(payloads, capacity);
+            tags = Arrays.copyOf(tags, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            buckets = Arrays.copyOf(buckets, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        return allocated++;
+    }
+
+    /**
+     * Returns a timer entry to the free list, invalidating its handle.
+     *
+     * @param timer the timer entry.
+     */
+    private void release(int timer) {
+        buckets[timer] = -1;
+        generations[timer]++;
+        next[timer] = freeHead;
+        freeHead = timer;
+    }
+}
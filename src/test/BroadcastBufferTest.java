@@ -0,0 +1,135 @@
+package test;
+
+import buffer.BroadcastBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the BroadcastBuffer class.
+ */
+public class BroadcastBufferTest {
+
+    private BroadcastBuffer buffer;
+
+    /**
+     * Initializes a broadcast buffer with room for four items before each test.
+     */
+    public void setUp() {
+        buffer = new BroadcastBuffer("TestBroadcastBuffer", 4);
+    }
+
+    /**
+     * Verifies that every subscriber receives every item, in order.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testEverySubscriberSeesEveryItem() throws InterruptedException {
+        int itemCount = 1000;
+        List<Thread> readers = new ArrayList<>();
+        boolean[] inOrder = new boolean[3];
+        for (int s = 0; s < inOrder.length; s++) {
+            BroadcastBuffer.Subscriber subscriber = buffer.subscribe("Subscriber-" + s);
+            int index = s;
+            Thread reader = new Thread(() -> {
+                try {
+                    int[] batch = new int[3];
+                    int expected = 0;
+                    boolean ok = true;
+                    while (expected < itemCount) {
+                        int drained = subscriber.drainTo(batch, 0, batch.length);
+                        for (int i = 0; i < drained; i++) {
+                            ok &= batch[i] == expected++;
+                        }
+                    }
+                    inOrder[index] = ok;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int i = 0; i < itemCount; i++) {
+            buffer.addItem(i);
+        }
+        for (Thread reader : readers) {
+            reader.join(5000);
+        }
+
+        if (inOrder[0] && inOrder[1] && inOrder[2] && buffer.getSize() == 0) {
+            System.out.println("Test Passed: Every subscriber received every item in order.");
+        } else {
+            System.err.println("Test Failed: Subscribers did not all receive every item in order.");
+        }
+    }
+
+    /**
+     * Verifies that producers wait for the slowest subscriber once it is a full ring behind.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testProducerGatedOnSlowestSubscriber() throws InterruptedException {
+        BroadcastBuffer.Subscriber fast = buffer.subscribe("Fast");
+        BroadcastBuffer.Subscriber slow = buffer.subscribe("Slow");
+        for (int i = 0; i < 4; i++) {
+            buffer.addItem(i);
+            fast.removeItem();
+        }
+
+        Thread producer = new Thread(() -> {
+            try {
+                buffer.addItem(4);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(100);
+        boolean blocked = producer.isAlive();
+
+        int first = slow.removeItem();
+        producer.join(1000);
+
+        if (blocked && first == 0 && !producer.isAlive() && fast.getLag() == 1 && slow.getLag() == 4) {
+            System.out.println("Test Passed: The producer waited for the slowest subscriber.");
+        } else {
+            System.err.println("Test Failed: The producer was not gated on the slowest subscriber.");
+        }
+    }
+
+    /**
+     * Verifies that a subscriber that stops reading is detached once the lag timeout expires,
+     * while the other subscribers keep receiving items.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testLaggingSubscriberIsDetached() throws InterruptedException {
+        buffer.setLagTimeout(50, TimeUnit.MILLISECONDS);
+        BroadcastBuffer.Subscriber fast = buffer.subscribe("Fast");
+        BroadcastBuffer.Subscriber stalled = buffer.subscribe("Stalled");
+
+        int received = 0;
+        for (int i = 0; i < 10; i++) {
+            buffer.addItem(i);
+            if (fast.removeItem() == i) {
+                received++;
+            }
+        }
+
+        boolean rejected = false;
+        try {
+            stalled.removeItem();
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+
+        if (received == 10 && rejected && stalled.isDetached() && buffer.getDetachedCount() == 1
+                && buffer.getSubscriberCount() == 1) {
+            System.out.println("Test Passed: The stalled subscriber was detached after the lag timeout.");
+        } else {
+            System.err.println("Test Failed: The stalled subscriber was not detached as expected.");
+        }
+    }
+}
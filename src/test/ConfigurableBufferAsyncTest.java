@@ -0,0 +1,140 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests for the CompletableFuture based addAsync/removeAsync API of the ConfigurableBuffer class.
+ */
+public class ConfigurableBufferAsyncTest {
+
+    private ConfigurableBuffer buffer;
+
+    /**
+     * Initializes a buffer with room for two items before each test.
+     */
+    public void setUp() {
+        buffer = new ConfigurableBuffer(2);
+    }
+
+    /**
+     * Verifies that the fast path completes synchronously when space or items are available.
+     *
+     * @throws Exception if a future fails unexpectedly.
+     */
+    public void testFastPathCompletesImmediately() throws Exception {
+        CompletableFuture<Void> added = buffer.addAsync(1);
+        CompletableFuture<Integer> removed = buffer.removeAsync();
+
+        if (added.isDone() && removed.isDone() && removed.get() == 1) {
+            System.out.println("Test Passed: Fast path completed synchronously.");
+        } else {
+            System.err.println("Test Failed: Fast path did not complete synchronously.");
+        }
+    }
+
+    /**
+     * Verifies that a pending remove is completed directly by the next add, and a pending add
+     * is admitted by the next remove.
+     *
+     * @throws Exception if a future fails unexpectedly.
+     */
+    public void testWaitersCompletedByOppositeOperation() throws Exception {
+        CompletableFuture<Integer> pendingRemove = buffer.removeAsync();
+        buffer.addItem(42);
+        boolean handedOff = pendingRemove.get(1, TimeUnit.SECONDS) == 42 && buffer.isEmpty();
+
+        buffer.addItem(1);
+        buffer.addItem(2);
+        CompletableFuture<Void> pendingAdd = buffer.addAsync(3);
+        boolean parked = !pendingAdd.isDone();
+        buffer.removeItem();
+        pendingAdd.get(1, TimeUnit.SECONDS);
+
+        if (handedOff && parked && buffer.getSize() == 2) {
+            System.out.println("Test Passed: Waiters were completed by the opposite operation.");
+        } else {
+            System.err.println("Test Failed: Waiters were not completed correctly.");
+        }
+    }
+
+    /**
+     * Verifies that cancelled and timed-out waiters are withdrawn and never receive or publish an item.
+     *
+     * @throws Exception if a future fails unexpectedly.
+     */
+    public void testCancelledAndTimedOutWaitersAreRemoved() throws Exception {
+        CompletableFuture<Integer> cancelled = buffer.removeAsync();
+        cancelled.cancel(false);
+        CompletableFuture<Integer> timedOut = buffer.removeAsync().orTimeout(50, TimeUnit.MILLISECONDS);
+        try {
+            timedOut.get();
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TimeoutException)) {
+                throw e;
+            }
+        }
+
+        buffer.addItem(7);
+        if (buffer.getSize() == 1 && buffer.removeItem() == 7) {
+            System.out.println("Test Passed: Cancelled and timed-out waiters were removed.");
+        } else {
+            System.err.println("Test Failed: A withdrawn waiter consumed an item.");
+        }
+    }
+
+    /**
+     * Verifies that a remove queued while a producer was blocked on a full buffer is served by
+     * that producer's item once it gets the slot, for both the blocking add and the timed offer.
+     *
+     * @throws Exception if a future fails unexpectedly.
+     */
+    public void testBlockedProducerServesPendingRemove() throws Exception {
+        boolean served = true;
+        String details = "";
+        for (boolean timed : new boolean[] {false, true}) {
+            ConfigurableBuffer single = new ConfigurableBuffer(1);
+            single.addItem(1);
+            Thread producer = new Thread(() -> {
+                try {
+                    if (timed) {
+                        single.offer(2, 10, TimeUnit.SECONDS);
+                    } else {
+                        single.addItem(2);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producer.start();
+            long deadline = System.currentTimeMillis() + 2000;
+            while (producer.getState() != Thread.State.WAITING && producer.getState() != Thread.State.TIMED_WAITING
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            // Empty the buffer and queue a remove before the woken producer can take the slot
+            CompletableFuture<Integer> pendingRemove;
+            synchronized (single) {
+                single.removeItem();
+                pendingRemove = single.removeAsync();
+            }
+            producer.join(1000);
+            Integer item = pendingRemove.isDone() ? pendingRemove.get() : null;
+            if (item == null || item != 2 || single.getSize() != 0) {
+                served = false;
+                details += (timed ? " offer" : " addItem") + ": future done=" + pendingRemove.isDone()
+                        + " size=" + single.getSize();
+            }
+        }
+
+        if (served) {
+            System.out.println("Test Passed: The blocked producer's item completed the pending remove.");
+        } else {
+            System.err.println("Test Failed:" + details);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package test;
+
+import buffer.ConflatingBuffer;
+
+/**
+ * Tests for the ConflatingBuffer class, verifying that updates for queued keys replace the
+ * pending value in place and that memory stays bounded by the number of distinct keys.
+ */
+public class ConflatingBufferTest {
+
+    private ConflatingBuffer buffer;
+
+    /**
+     * Initializes a buffer with room for three distinct keys before each test.
+     */
+    public void setUp() {
+        buffer = new ConflatingBuffer("test-conflating", 3);
+    }
+
+    /**
+     * Verifies that a newer value replaces the pending one without changing the key's queue position.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testLatestValueKeepsQueuePosition() throws InterruptedException {
+        buffer.addItem(1, 10);
+        buffer.addItem(2, 20);
+        buffer.addItem(1, 11); // Replaces the value of key 1, which stays first
+        buffer.addItem(3, 30);
+        buffer.addItem(2, 21);
+
+        int[] entry = new int[2];
+        StringBuilder order = new StringBuilder();
+        while (buffer.getSize() > 0) {
+            buffer.removeEntry(entry);
+            order.append(entry[0]).append('=').append(entry[1]).append(' ');
+        }
+
+        if (order.toString().equals("1=11 2=21 3=30 ") && buffer.getConflatedCount() == 2) {
+            System.out.println("Test Passed: Latest values were delivered in original key order.");
+        } else {
+            System.err.println("Test Failed: Unexpected delivery " + order + "conflated=" + buffer.getConflatedCount());
+        }
+    }
+
+    /**
+     * Verifies that a burst of updates for known keys never blocks the producer or grows the buffer.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testBurstIsBoundedByDistinctKeys() throws InterruptedException {
+        for (int i = 0; i < 100_000; i++) {
+            buffer.addItem(i % 3, i);
+        }
+
+        if (buffer.getSize() == 3 && buffer.getAddedCount() == 3 && buffer.getConflatedCount() == 99_997) {
+            System.out.println("Test Passed: Buffer stayed bounded by the number of distinct keys.");
+        } else {
+            System.err.println("Test Failed: size=" + buffer.getSize() + ", conflated=" + buffer.getConflatedCount());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import consumer.Consumer;
+import consumer.ConsumerAutoscaler;
+import java.util.concurrent.TimeUnit;
+import util.Logger;
+
+/**
+ * Tests for the ConsumerAutoscaler class.
+ */
+public class ConsumerAutoscalerTest {
+
+    private ConfigurableBuffer buffer;
+    private ConsumerAutoscaler autoscaler;
+
+    /**
+     * Initializes a buffer and an autoscaler of one to three slow consumers that reacts quickly.
+     * Scaling decisions are logged to the console only.
+     */
+    public void setUp() {
+        Logger.setLogFile(null);
+        buffer = new ConfigurableBuffer(20);
+        buffer.setVerbose(false);
+        autoscaler = new ConsumerAutoscaler(buffer, "AutoConsumer",
+                name -> new Consumer(buffer, name, 10), 1, 3);
+        autoscaler.setSustainSamples(2);
+        autoscaler.setCooldown(50, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the autoscaler and its consumers after the test.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the consumers.
+     */
+    public void tearDown() throws InterruptedException {
+        autoscaler.stop(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Verifies that the pool grows while producers outpace a single consumer and shrinks
+     * back to its minimum once the backlog is gone.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testScalesWithBacklog() throws InterruptedException {
+        autoscaler.start(20, TimeUnit.MILLISECONDS);
+
+        // Produce roughly 200 items per second against consumers that handle about 100 each
+        int maxConsumers = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        for (int i = 0; System.nanoTime() < deadline; i++) {
+            buffer.addItem(i);
+            Thread.sleep(5);
+            maxConsumers = Math.max(maxConsumers, autoscaler.getActiveConsumerCount());
+        }
+
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (autoscaler.getActiveConsumerCount() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        if (maxConsumers > 1 && autoscaler.getScaleUpCount() > 0
+                && autoscaler.getActiveConsumerCount() == 1 && autoscaler.getScaleDownCount() > 0) {
+            System.out.println("Test Passed: Consumer pool grew to " + maxConsumers + " and shrank back to 1.");
+        } else {
+            System.err.println("Test Failed: Pool did not follow the load, max=" + maxConsumers
+                    + " active=" + autoscaler.getActiveConsumerCount());
+        }
+    }
+
+    /**
+     * Verifies that retiring consumers finish the items they took, so every produced item is
+     * either consumed or still in the buffer after the pool has stopped.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testRetirementLosesNoItems() throws InterruptedException {
+        autoscaler.setCooldown(0, TimeUnit.MILLISECONDS);
+        autoscaler.start(10, TimeUnit.MILLISECONDS);
+
+        int produced = 0;
+        for (int burst = 0; burst < 5; burst++) {
+            for (int i = 0; i < 20; i++) {
+                buffer.addItem(produced++);
+            }
+            Thread.sleep(150); // Let the pool scale up under the burst and down once it is drained
+        }
+        boolean stopped = autoscaler.stop(5, TimeUnit.SECONDS);
+
+        if (stopped && autoscaler.getConsumedCount() + buffer.getSize() == produced
+                && autoscaler.getRetiringConsumerCount() == 0) {
+            System.out.println("Test Passed: No items were lost while consumers were retired.");
+        } else {
+            System.err.println("Test Failed: consumed=" + autoscaler.getConsumedCount()
+                    + " buffered=" + buffer.getSize() + " produced=" + produced);
+        }
+    }
+
+    /**
+     * Verifies that idle consumers, single-item and batching alike, block on the buffer without
+     * polling it, and that retiring them wakes them right away.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testIdleConsumerRetiresPromptly() throws InterruptedException {
+        Consumer[] consumers = {
+                new Consumer(buffer, "IdleConsumer", 10),
+                new Consumer(buffer, "IdleBatchConsumer", 10, 4, 10, (items, count) -> { })
+        };
+        boolean passed = true;
+        for (Consumer consumer : consumers) {
+            Thread thread = new Thread(consumer);
+            thread.start();
+            long deadline = System.currentTimeMillis() + 2000;
+            while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            boolean blocked = thread.getState() == Thread.State.WAITING; // A polling consumer would be TIMED_WAITING
+            long started = System.nanoTime();
+            consumer.retire();
+            thread.join(1000);
+            long stopMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            passed &= blocked && !thread.isAlive() && stopMs < 50 && consumer.getConsumedCount() == 0;
+        }
+
+        if (passed && buffer.getSize() == 0) {
+            System.out.println("Test Passed: Idle consumers blocked on the buffer and stopped as soon as they were retired.");
+        } else {
+            System.err.println("Test Failed: Idle consumers did not stop promptly when retired.");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import consumer.Consumer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tests for the micro-batching mode of the Consumer class.
+ */
+public class ConsumerBatchTest {
+
+    private ConfigurableBuffer buffer;
+    private List<Integer> batchSizes;
+
+    /**
+     * Initializes the buffer and the list of observed batch sizes before each test.
+     */
+    public void setUp() {
+        buffer = new ConfigurableBuffer(10);
+        batchSizes = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Verifies that a batch is handed off as soon as it reaches the maximum size, and that the
+     * remaining items are handed off once the linger time elapses.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testBatchesBoundedBySizeAndLinger() throws InterruptedException {
+        for (int i = 1; i <= 5; i++) {
+            buffer.addItem(i);
+        }
+
+        Consumer consumer = new Consumer(buffer, "BatchConsumer", 0, 3, 50,
+                (items, count) -> batchSizes.add(count));
+        Thread consumerThread = new Thread(consumer);
+        consumerThread.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batchSizes.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100); // Give an unexpected extra batch the chance to show up
+        consumerThread.interrupt();
+        consumerThread.join(1000);
+
+        if (batchSizes.equals(List.of(3, 2)) && consumer.getBatchSizes().getCount() == 2) {
+            System.out.println("Test Passed: Batches were bounded by size and linger time.");
+        } else {
+            System.err.println("Test Failed: Unexpected batch sizes " + batchSizes);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import buffer.DelayedDelivery;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import util.TimingWheel;
+
+/**
+ * Tests for the DelayedDelivery class and its TimingWheel.
+ */
+public class DelayedDeliveryTest {
+
+    private ConfigurableBuffer target;
+    private ConfigurableBuffer deadLetters;
+    private DelayedDelivery delivery;
+
+    /**
+     * Initializes a delivery facility with a one millisecond tick before each test.
+     */
+    public void setUp() {
+        target = new ConfigurableBuffer(16);
+        target.setVerbose(false);
+        deadLetters = new ConfigurableBuffer(16);
+        deadLetters.setVerbose(false);
+        delivery = new DelayedDelivery("TestDelivery", target, deadLetters, 1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the ticker after the test.
+     */
+    public void tearDown() {
+        delivery.close();
+    }
+
+    /**
+     * Verifies that the wheel fires every timer exactly at its deadline, across all levels,
+     * and that cancelled timers never fire.
+     */
+    public void testWheelFiresTimersAtTheirDeadlines() {
+        TimingWheel wheel = new TimingWheel(16);
+        Random random = new Random(42);
+        int timerCount = 100_000;
+        long[] deadlines = new long[timerCount];
+        long[] handles = new long[timerCount];
+        for (int i = 0; i < timerCount; i++) {
+            // Mostly near deadlines, plus some that need several cascades
+            deadlines[i] = random.nextInt(8) == 0 ? random.nextInt(1 << 20) : random.nextInt(5000);
+            handles[i] = wheel.add(deadlines[i], i, 0);
+        }
+        int cancelled = 0;
+        for (int i = 0; i < timerCount; i += 3) {
+            if (wheel.cancel(handles[i])) {
+                cancelled++;
+            }
+        }
+
+        int[] fired = new int[1];
+        boolean[] exact = {true};
+        for (long tick = 0; tick < (1 << 20); tick += 1 + random.nextInt(3)) {
+            long now = tick;
+            wheel.advanceTo(now, (payload, tag) -> {
+                fired[0]++;
+                // Timers may fire on a later advance only if that advance covered several ticks
+                exact[0] &= deadlines[payload] <= now && deadlines[payload] > now - 3 && payload % 3 != 0;
+            });
+        }
+
+        if (exact[0] && cancelled == (timerCount + 2) / 3 && fired[0] == timerCount - cancelled
+                && wheel.size() == 0 && !wheel.cancel(handles[1])) {
+            System.out.println("Test Passed: The wheel fired " + fired[0] + " timers at their deadlines.");
+        } else {
+            System.err.println("Test Failed: fired=" + fired[0] + " cancelled=" + cancelled + " exact=" + exact[0]);
+        }
+    }
+
+    /**
+     * Verifies that scheduled items are delivered in deadline order and never before their delay.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testItemsDeliveredAfterDelay() throws InterruptedException {
+        long started = System.nanoTime();
+        delivery.schedule(3, 60, TimeUnit.MILLISECONDS);
+        delivery.schedule(1, 20, TimeUnit.MILLISECONDS);
+        delivery.schedule(2, 40, TimeUnit.MILLISECONDS);
+
+        boolean passed = true;
+        for (int expected = 1; expected <= 3; expected++) {
+            Integer item = target.poll(1, TimeUnit.SECONDS);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            passed &= item != null && item == expected && elapsedMs >= expected * 20L;
+        }
+
+        if (passed && awaitCount(delivery::getDeliveredCount, 3) && delivery.getPendingCount() == 0) {
+            System.out.println("Test Passed: Delayed items were delivered in order, not before their delay.");
+        } else {
+            System.err.println("Test Failed: Delayed items were not delivered as expected.");
+        }
+    }
+
+    /**
+     * Verifies that a cancelled item is never delivered and cannot be cancelled twice.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testCancelledItemIsNotDelivered() throws InterruptedException {
+        long handle = delivery.schedule(1, 30, TimeUnit.MILLISECONDS);
+        delivery.schedule(2, 30, TimeUnit.MILLISECONDS);
+        boolean cancelled = delivery.cancel(handle);
+        boolean cancelledTwice = delivery.cancel(handle);
+
+        Integer first = target.poll(1, TimeUnit.SECONDS);
+        Integer second = target.poll(100, TimeUnit.MILLISECONDS);
+
+        if (cancelled && !cancelledTwice && first != null && first == 2 && second == null) {
+            System.out.println("Test Passed: The cancelled item was not delivered.");
+        } else {
+            System.err.println("Test Failed: Cancellation did not behave as expected.");
+        }
+    }
+
+    /**
+     * Verifies that retries back off exponentially and that an item is dead-lettered once it has
+     * used up its attempts.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testRetryBackoffThenDeadLetter() throws InterruptedException {
+        delivery.setRetryPolicy(20, 50, TimeUnit.MILLISECONDS, 3);
+
+        boolean passed = true;
+        long[] expectedBackoffMs = {20, 40};
+        for (long backoffMs : expectedBackoffMs) {
+            long started = System.nanoTime();
+            passed &= delivery.retry(7);
+            Integer item = target.poll(1, TimeUnit.SECONDS);
+            passed &= item != null && item == 7
+                    && System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(backoffMs);
+        }
+        boolean retried = delivery.retry(7);
+        Integer dead = deadLetters.poll(1, TimeUnit.SECONDS);
+
+        if (passed && !retried && dead != null && dead == 7 && delivery.getAttempts(7) == 0
+                && awaitCount(delivery::getDeadLetterCount, 1)) {
+            System.out.println("Test Passed: Retries backed off and the item was dead-lettered.");
+        } else {
+            System.err.println("Test Failed: Retry and dead-lettering did not behave as expected.");
+        }
+    }
+
+    /**
+     * Verifies that many pending items are delivered once the target buffer has space,
+     * deferring delivery instead of blocking while it is full.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testManyItemsDeferredWhileTargetFull() throws InterruptedException {
+        int itemCount = 200_000;
+        long started = System.nanoTime();
+        for (int i = 0; i < itemCount; i++) {
+            delivery.schedule(i, 50 + i % 200, TimeUnit.MILLISECONDS);
+        }
+        long scheduleNanos = System.nanoTime() - started;
+
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        int[] batch = new int[16];
+        while (received < itemCount && System.nanoTime() < deadline) {
+            received += target.drainTo(batch, 0, batch.length, 100, TimeUnit.MILLISECONDS);
+        }
+
+        if (received == itemCount && awaitCount(delivery::getDeliveredCount, itemCount)
+                && delivery.getDeferredCount() > 0) {
+            System.out.println("Test Passed: " + itemCount + " items scheduled in "
+                    + TimeUnit.NANOSECONDS.toMillis(scheduleNanos) + " ms were all delivered.");
+        } else {
+            System.err.println("Test Failed: received=" + received + " of " + itemCount);
+        }
+    }
+
+    /**
+     * Verifies that items parked while the target stays full are not retried on every tick,
+     * that each is counted as deferred once, and that all of them are delivered once the target
+     * drains.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testParkedItemsNotRetriedEveryTick() throws InterruptedException {
+        AtomicLong attempts = new AtomicLong();
+        ConfigurableBuffer countingTarget = new ConfigurableBuffer(1) {
+            @Override
+            public boolean tryAdd(int item) {
+                attempts.incrementAndGet();
+                return super.tryAdd(item);
+            }
+        };
+        countingTarget.setVerbose(false);
+        countingTarget.tryAdd(-1); // Full from the start
+        DelayedDelivery parking = new DelayedDelivery("ParkingDelivery", countingTarget, deadLetters, 1,
+                TimeUnit.MILLISECONDS);
+        try {
+            int itemCount = 1000;
+            for (int i = 0; i < itemCount; i++) {
+                parking.schedule(i, 1, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(300); // Hundreds of ticks while the target stays full
+            long attemptsWhileFull = attempts.get() - 1;
+            long deferred = parking.getDeferredCount();
+            int pending = parking.getPendingCount();
+
+            // Items due in the same tick may leave the wheel in any order
+            boolean[] seen = new boolean[itemCount];
+            int received = countingTarget.removeItem() == -1 ? 0 : -1;
+            for (int i = 0; received == i && i < itemCount; i++) {
+                Integer item = countingTarget.poll(1, TimeUnit.SECONDS);
+                if (item != null && item >= 0 && item < itemCount && !seen[item]) {
+                    seen[item] = true;
+                    received++;
+                }
+            }
+
+            if (attemptsWhileFull < 50 && deferred == itemCount && pending == itemCount && received == itemCount) {
+                System.out.println("Test Passed: " + itemCount + " parked items took " + attemptsWhileFull
+                        + " delivery attempts while the target was full and then all arrived.");
+            } else {
+                System.err.println("Test Failed: attempts=" + attemptsWhileFull + " deferred=" + deferred
+                        + " pending=" + pending + " received=" + received);
+            }
+        } finally {
+            parking.close();
+        }
+    }
+
+    /**
+     * Waits up to a second for a counter to reach a value. The ticker updates its counters after
+     * handing items over, so they can lag slightly behind the items a test has received.
+     *
+     * @param counter the counter.
+     * @param expected the expected value.
+     * @return true if the counter reached the value.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private static boolean awaitCount(LongSupplier counter, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (counter.getAsLong() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return counter.getAsLong() == expected;
+    }
+}
@@ -0,0 +1,104 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import buffer.EliminatingBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the EliminatingBuffer class.
+ */
+public class EliminatingBufferTest {
+
+    private ConfigurableBuffer central;
+    private EliminatingBuffer buffer;
+
+    /**
+     * Initializes a single exchange slot in front of a tiny central buffer, so that adds and
+     * removes often find it full or empty and meet in the exchange array.
+     */
+    public void setUp() {
+        central = new ConfigurableBuffer(1);
+        central.setVerbose(false);
+        buffer = new EliminatingBuffer(central, 1, 1);
+    }
+
+    /**
+     * Verifies that single-threaded operations go through the central buffer and honour its bounds.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testUncontendedOperationsUseCentralBuffer() throws InterruptedException {
+        boolean first = buffer.tryAdd(1);
+        boolean second = buffer.offer(2, 20, TimeUnit.MILLISECONDS);
+        int size = buffer.getSize();
+        Integer item = buffer.tryRemove();
+        Integer none = buffer.poll(20, TimeUnit.MILLISECONDS);
+
+        if (first && !second && size == 1 && item != null && item == 1 && none == null
+                && buffer.getCentralCount() == 2 && buffer.getEliminatedCount() == 0) {
+            System.out.println("Test Passed: Uncontended operations were served by the central buffer.");
+        } else {
+            System.err.println("Test Failed: first=" + first + " second=" + second + " size=" + size
+                    + " item=" + item + " none=" + none);
+        }
+    }
+
+    /**
+     * Verifies that items added and removed by many threads at once are delivered exactly once,
+     * and that some add and remove pairs were eliminated without reaching the central buffer.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testConcurrentItemsDeliveredExactlyOnce() throws InterruptedException {
+        int threadPairs = 4;
+        int itemsPerProducer = 20_000;
+        BitSet received = new BitSet();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < threadPairs; p++) {
+            int first = p * itemsPerProducer;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = first; i < first + itemsPerProducer; i++) {
+                        buffer.addItem(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < itemsPerProducer; i++) {
+                        int item = buffer.removeItem();
+                        synchronized (received) {
+                            if (received.get(item)) {
+                                duplicates.incrementAndGet();
+                            }
+                            received.set(item);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+
+        int total = threadPairs * itemsPerProducer;
+        if (received.cardinality() == total && duplicates.get() == 0 && buffer.getSize() == 0
+                && buffer.getEliminatedCount() > 0) {
+            System.out.println("Test Passed: All items were delivered exactly once, "
+                    + buffer.getEliminatedCount() + " pairs eliminated.");
+        } else {
+            System.err.println("Test Failed: received=" + received.cardinality() + " duplicates=" + duplicates.get()
+                    + " eliminated=" + buffer.getEliminatedCount());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package test;
+
+import buffer.FlatCombiningBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the FlatCombiningBuffer class.
+ */
+public class FlatCombiningBufferTest {
+
+    private FlatCombiningBuffer buffer;
+
+    /**
+     * Initializes a small buffer, so that producers and consumers often find it full or empty.
+     */
+    public void setUp() {
+        buffer = new FlatCombiningBuffer("TestCombiningBuffer", 4);
+    }
+
+    /**
+     * Verifies that items added and removed by many threads at once are delivered exactly once.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testConcurrentItemsDeliveredExactlyOnce() throws InterruptedException {
+        int threadPairs = 8;
+        int itemsPerProducer = 20_000;
+        BitSet received = new BitSet();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < threadPairs; p++) {
+            int first = p * itemsPerProducer;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = first; i < first + itemsPerProducer; i++) {
+                        buffer.addItem(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < itemsPerProducer; i++) {
+                        int item = buffer.removeItem();
+                        synchronized (received) {
+                            if (received.get(item)) {
+                                duplicates.incrementAndGet();
+                            }
+                            received.set(item);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+
+        if (received.cardinality() == threadPairs * itemsPerProducer && duplicates.get() == 0
+                && buffer.getSize() == 0 && buffer.getCombinedPerPass().getCount() > 0) {
+            System.out.println("Test Passed: All items were delivered exactly once, mean "
+                    + buffer.getCombinedPerPass().getMean() + " requests per combining pass.");
+        } else {
+            System.err.println("Test Failed: received=" + received.cardinality() + " duplicates=" + duplicates.get());
+        }
+    }
+
+    /**
+     * Verifies that interrupting a blocked remove withdraws its request, so it does not
+     * swallow an item added afterwards.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testInterruptedRemoveTakesNoItem() throws InterruptedException {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread remover = new Thread(() -> {
+            try {
+                buffer.removeItem();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        remover.start();
+        Thread.sleep(50);
+        remover.interrupt();
+        remover.join(1000);
+
+        buffer.addItem(42);
+        if (interrupted.get() && buffer.getSize() == 1 && buffer.removeItem() == 42) {
+            System.out.println("Test Passed: The interrupted remove did not take an item.");
+        } else {
+            System.err.println("Test Failed: The interrupted remove was not withdrawn.");
+        }
+    }
+
+    /**
+     * Verifies that the records of threads that stopped using the buffer are unlinked, so that
+     * combining passes do not grow with thread churn, and that a thread whose record was unlinked
+     * can still use the buffer.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testIdleRecordsUnlinked() throws InterruptedException {
+        int churnedThreads = 100;
+        for (int t = 0; t < churnedThreads; t++) {
+            int item = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    buffer.addItem(item);
+                    buffer.removeItem();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            thread.join(1000);
+        }
+        int linkedAfterChurn = buffer.getRecordCount();
+
+        // A long-lived thread that goes idle, and comes back once its record has aged out
+        AtomicBoolean resume = new AtomicBoolean();
+        AtomicBoolean addedAfterIdle = new AtomicBoolean();
+        Thread idle = new Thread(() -> {
+            try {
+                buffer.addItem(-1);
+                while (!resume.get()) {
+                    Thread.sleep(1);
+                }
+                buffer.addItem(-2);
+                addedAfterIdle.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        idle.start();
+        boolean firstIdleItem = buffer.removeItem() == -1;
+
+        // Enough passes of the calling thread for all idle records to age out
+        for (int i = 0; i < 5_000; i++) {
+            buffer.addItem(i);
+            buffer.removeItem();
+        }
+        int linkedAfterAging = buffer.getRecordCount();
+        resume.set(true);
+        boolean secondIdleItem = buffer.removeItem() == -2;
+        idle.join(1000);
+
+        if (linkedAfterChurn >= churnedThreads && linkedAfterAging == 1 && firstIdleItem && secondIdleItem
+                && addedAfterIdle.get() && buffer.getSize() == 0) {
+            System.out.println("Test Passed: " + linkedAfterChurn + " records shrank to " + linkedAfterAging
+                    + " and an aged-out thread could still add items.");
+        } else {
+            System.err.println("Test Failed: linked after churn=" + linkedAfterChurn + " after aging=" + linkedAfterAging
+                    + " idle items=" + firstIdleItem + "/" + secondIdleItem);
+        }
+    }
+}
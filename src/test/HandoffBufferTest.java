@@ -0,0 +1,154 @@
+package test;
+
+import buffer.HandoffBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the HandoffBuffer class.
+ */
+public class HandoffBufferTest {
+
+    private HandoffBuffer buffer;
+
+    /**
+     * Initializes a fresh buffer.
+     */
+    public void setUp() {
+        buffer = new HandoffBuffer("TestHandoffBuffer");
+    }
+
+    /**
+     * Verifies that an item is only accepted when a consumer is there to take it.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testItemOnlyAcceptedByWaitingConsumer() throws InterruptedException {
+        boolean acceptedAlone = buffer.tryAdd(1);
+        boolean offeredAlone = buffer.offer(2, 20, TimeUnit.MILLISECONDS);
+
+        AtomicInteger received = new AtomicInteger(-1);
+        Thread consumer = new Thread(() -> {
+            try {
+                received.set(buffer.removeItem());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        long deadline = System.currentTimeMillis() + 1000;
+        while (buffer.getWaitingConsumerCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        boolean accepted = buffer.tryAdd(3);
+        consumer.join(1000);
+
+        if (!acceptedAlone && !offeredAlone && accepted && received.get() == 3
+                && buffer.getHandoffCount() == 1 && buffer.getWaitingConsumerCount() == 0) {
+            System.out.println("Test Passed: The item was handed directly to the waiting consumer.");
+        } else {
+            System.err.println("Test Failed: acceptedAlone=" + acceptedAlone + " offeredAlone=" + offeredAlone
+                    + " accepted=" + accepted + " received=" + received.get());
+        }
+    }
+
+    /**
+     * Verifies that a producer waits until a consumer takes its item, and that a timed-out
+     * or interrupted wait leaves nothing behind.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testProducerWaitsForConsumer() throws InterruptedException {
+        Integer timedOut = buffer.poll(20, TimeUnit.MILLISECONDS);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread abandoned = new Thread(() -> {
+            try {
+                buffer.addItem(7);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        abandoned.start();
+        Thread.sleep(50);
+        abandoned.interrupt();
+        abandoned.join(1000);
+
+        AtomicBoolean added = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            try {
+                buffer.addItem(8);
+                added.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+        boolean addedEarly = added.get();
+        Integer item = buffer.poll(1, TimeUnit.SECONDS);
+        producer.join(1000);
+
+        if (timedOut == null && interrupted.get() && !addedEarly && item != null && item == 8 && added.get()
+                && buffer.getWaitingProducerCount() == 0) {
+            System.out.println("Test Passed: The producer waited for a consumer to take its item.");
+        } else {
+            System.err.println("Test Failed: timedOut=" + timedOut + " interrupted=" + interrupted.get()
+                    + " addedEarly=" + addedEarly + " item=" + item);
+        }
+    }
+
+    /**
+     * Verifies that items handed over between many threads at once are delivered exactly once.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testConcurrentItemsDeliveredExactlyOnce() throws InterruptedException {
+        int threadPairs = 4;
+        int itemsPerProducer = 10_000;
+        BitSet received = new BitSet();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < threadPairs; p++) {
+            int first = p * itemsPerProducer;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = first; i < first + itemsPerProducer; i++) {
+                        buffer.addItem(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < itemsPerProducer; i++) {
+                        int item = buffer.removeItem();
+                        synchronized (received) {
+                            if (received.get(item)) {
+                                duplicates.incrementAndGet();
+                            }
+                            received.set(item);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+
+        if (received.cardinality() == threadPairs * itemsPerProducer && duplicates.get() == 0
+                && buffer.getHandoffCount() == threadPairs * itemsPerProducer) {
+            System.out.println("Test Passed: All items were handed over exactly once.");
+        } else {
+            System.err.println("Test Failed: received=" + received.cardinality() + " duplicates=" + duplicates.get());
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import buffer.LockProfiler;
+import buffer.OverflowPolicy;
+import buffer.SharedBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import util.Logger;
+
+/**
+ * Tests for the LockProfiler class. Every operation is sampled, and profiling is disabled again
+ * after each test so that buffers created by other tests are not instrumented.
+ */
+public class LockProfilerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private Thread helper;
+
+    /**
+     * Enables profiling of every operation for the buffers created by a test. The wait paths are
+     * exercised once beforehand, so that one-off initialization of their flight recorder events
+     * is not measured as hold time. The summaries dumped at shutdown are logged to the console only.
+     *
+     * @throws InterruptedException if the thread is interrupted during the warm-up.
+     */
+    public void setUp() throws InterruptedException {
+        Logger.setLogFile(null);
+        ConfigurableBuffer warmUp = new ConfigurableBuffer(1);
+        warmUp.setVerbose(false);
+        warmUp.poll(1, TimeUnit.MILLISECONDS);
+        warmUp.addItem(0);
+        warmUp.offer(0, 1, TimeUnit.MILLISECONDS);
+        LockProfiler.enable(1);
+    }
+
+    /**
+     * Disables profiling and stops the helper thread started by a test.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the helper.
+     */
+    public void tearDown() throws InterruptedException {
+        LockProfiler.disable();
+        if (helper != null) {
+            helper.interrupt();
+            helper.join(1000);
+        }
+    }
+
+    /**
+     * Verifies that time spent entering the monitor, holding it and waiting in it are reported
+     * separately: a blocked add shows up as acquire time and a remove on an empty buffer as wait
+     * time, while neither counts as hold time.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testAcquireHoldAndWaitSeparated() throws InterruptedException {
+        ConfigurableBuffer buffer = new ConfigurableBuffer("ProfiledBuffer", 4);
+        buffer.setVerbose(false);
+        LockProfiler profiler = buffer.getLockProfiler();
+
+        // Hold the monitor from another thread, so the add has to wait to enter it
+        helper = new Thread(() -> {
+            synchronized (buffer) {
+                sleepQuietly(100);
+            }
+        });
+        helper.start();
+        awaitState(helper, Thread.State.TIMED_WAITING);
+        buffer.addItem(1);
+        helper.join(1000);
+        buffer.removeItem();
+
+        // Add an item while a remove waits on the empty buffer
+        helper = new Thread(() -> {
+            sleepQuietly(100);
+            buffer.tryAdd(2);
+        });
+        helper.start();
+        buffer.removeItem();
+
+        long acquireMax = profiler.getAcquireTimes().getMax();
+        long holdMax = profiler.getHoldTimes().getMax();
+        long waitNanos = profiler.getWaitNanos();
+        if (acquireMax >= 50 * MS && waitNanos >= 50 * MS && holdMax < 50 * MS && profiler.getWaitCount() >= 1) {
+            System.out.println("Test Passed: acquire max " + acquireMax / MS + " ms, wait " + waitNanos / MS
+                    + " ms and hold max " + holdMax / 1000 + " us were reported separately.");
+        } else {
+            System.err.println("Test Failed: acquire max=" + acquireMax + " hold max=" + holdMax + " wait=" + waitNanos);
+        }
+    }
+
+    /**
+     * Verifies that a wakeup after which the buffer is still empty is counted as useless.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testUselessWakeupCounted() throws InterruptedException {
+        SharedBuffer buffer = new SharedBuffer("ProfiledSharedBuffer", 4);
+        LockProfiler profiler = buffer.getLockProfiler();
+
+        helper = new Thread(() -> {
+            try {
+                buffer.removeItem();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        helper.start();
+        awaitState(helper, Thread.State.WAITING);
+        synchronized (buffer) {
+            buffer.notifyAll(); // Wake the remover although there is nothing to remove
+        }
+        Thread.sleep(50);
+        buffer.addItem(1);
+        helper.join(1000);
+
+        if (profiler.getUselessWakeups() == 1 && profiler.getWaitCount() == 2) {
+            System.out.println("Test Passed: The wakeup with nothing to remove was counted as useless.");
+        } else {
+            System.err.println("Test Failed: useless=" + profiler.getUselessWakeups() + " waits=" + profiler.getWaitCount());
+        }
+    }
+
+    /**
+     * Verifies that the totals of terminated threads are folded into the retired entry, so that
+     * short-lived threads do not accumulate in the profiler.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testTerminatedThreadsRetired() throws InterruptedException {
+        ConfigurableBuffer buffer = new ConfigurableBuffer("ChurnedBuffer", 4);
+        buffer.setVerbose(false);
+        LockProfiler profiler = buffer.getLockProfiler();
+
+        int threadCount = 50;
+        for (int i = 0; i < threadCount; i++) {
+            int item = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    buffer.offer(item, 0, TimeUnit.MILLISECONDS);
+                    buffer.poll(0, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            thread.join(1000);
+        }
+
+        List<String> problems = new ArrayList<>();
+        if (profiler.getThreadCount() != 0) {
+            problems.add("threads=" + profiler.getThreadCount());
+        }
+        String summary = profiler.summary();
+        if (!summary.contains("retired threads (" + threadCount + ")") || !summary.contains("samples=" + 2 * threadCount)) {
+            problems.add("summary=" + summary);
+        }
+        if (problems.isEmpty()) {
+            System.out.println("Test Passed: " + threadCount + " terminated threads were folded into the retired totals.");
+        } else {
+            System.err.println("Test Failed: " + problems);
+        }
+    }
+
+    /**
+     * Verifies that operations that throw after entering the monitor still close their sample,
+     * so every acquire is matched by a hold, and that the time an interrupted or timed-out add
+     * spent waiting is not reported as hold time.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testSampleClosedWhenOperationThrows() throws InterruptedException {
+        ConfigurableBuffer buffer = new ConfigurableBuffer("ThrowingBuffer", 1);
+        buffer.setVerbose(false);
+        LockProfiler profiler = buffer.getLockProfiler();
+        buffer.addItem(1);
+
+        int failures = 0;
+        buffer.setOverflowPolicy(OverflowPolicy.REJECT);
+        try {
+            buffer.addItem(2);
+        } catch (IllegalStateException e) {
+            failures++;
+        }
+        buffer.setOverflowPolicy(OverflowPolicy.BLOCK_WITH_TIMEOUT);
+        buffer.setBlockTimeout(50, TimeUnit.MILLISECONDS);
+        try {
+            buffer.addItem(3);
+        } catch (IllegalStateException e) {
+            failures++;
+        }
+        buffer.setOverflowPolicy(OverflowPolicy.BLOCK);
+        helper = new Thread(() -> {
+            try {
+                buffer.addItem(4);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        helper.start();
+        awaitState(helper, Thread.State.WAITING);
+        sleepQuietly(50);
+        helper.interrupt();
+        helper.join(1000);
+
+        long acquires = profiler.getAcquireTimes().getCount();
+        long holds = profiler.getHoldTimes().getCount();
+        long holdMax = profiler.getHoldTimes().getMax();
+        if (failures == 2 && acquires == 4 && holds == 4 && holdMax < 20 * MS
+                && profiler.summary().contains("samples=3") && profiler.getWaitNanos() >= 100 * MS) {
+            System.out.println("Test Passed: Rejected, timed-out and interrupted adds closed their samples, hold max "
+                    + holdMax / 1000 + " us.");
+        } else {
+            System.err.println("Test Failed: failures=" + failures + " acquires=" + acquires + " holds=" + holds
+                    + " hold max=" + holdMax + " summary=" + profiler.summary());
+        }
+    }
+
+    /**
+     * Verifies that the profilers of buffers that have been garbage collected are dropped from
+     * the registry.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testCollectedBuffersDeregistered() throws InterruptedException {
+        int before = LockProfiler.getProfiledBufferCount();
+        int bufferCount = 100;
+        for (int i = 0; i < bufferCount; i++) {
+            new ConfigurableBuffer("DiscardedBuffer-" + i, 4).setVerbose(false);
+        }
+        int registered = LockProfiler.getProfiledBufferCount();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        int remaining = registered;
+        while (remaining > before && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(20);
+            remaining = LockProfiler.getProfiledBufferCount();
+        }
+        if (registered >= before + bufferCount && remaining <= before) {
+            System.out.println("Test Passed: The profilers of " + bufferCount + " discarded buffers were deregistered.");
+        } else {
+            System.err.println("Test Failed: before=" + before + " registered=" + registered + " remaining=" + remaining);
+        }
+    }
+
+    /**
+     * Waits up to two seconds for a thread to reach the given state.
+     *
+     * @param thread the thread.
+     * @param state the expected state.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (thread.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Sleeps without propagating interruption, for use in helper threads.
+     *
+     * @param millis the time to sleep, in milliseconds.
+     */
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import buffer.OverflowPolicy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the overflow policies and item time-to-live of the ConfigurableBuffer class.
+ */
+public class OverflowPolicyTest {
+
+    private ConfigurableBuffer buffer;
+
+    /**
+     * Initializes a buffer with room for two items and fills it before each test.
+     *
+     * @throws InterruptedException if the thread is interrupted while filling the buffer.
+     */
+    public void setUp() throws InterruptedException {
+        buffer = new ConfigurableBuffer(2);
+        buffer.setVerbose(false);
+        buffer.addItem(1);
+        buffer.addItem(2);
+    }
+
+    /**
+     * Verifies that DROP_OLDEST evicts the head of the queue and DROP_NEWEST discards the new item.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testDropPolicies() throws InterruptedException {
+        buffer.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        buffer.addItem(3); // Evicts 1
+        buffer.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        buffer.addItem(4); // Discarded
+
+        if (buffer.removeItem() == 2 && buffer.removeItem() == 3
+                && buffer.getOverflowCount(OverflowPolicy.DROP_OLDEST) == 1
+                && buffer.getOverflowCount(OverflowPolicy.DROP_NEWEST) == 1) {
+            System.out.println("Test Passed: Drop policies shed the expected items.");
+        } else {
+            System.err.println("Test Failed: Drop policies did not shed the expected items.");
+        }
+    }
+
+    /**
+     * Verifies that DROP_OLDEST brings a buffer that was shrunk below its depth back within its
+     * new capacity, for both the blocking and the asynchronous add.
+     *
+     * @throws Exception if the thread is interrupted or the asynchronous add fails.
+     */
+    public void testDropOldestAfterShrink() throws Exception {
+        buffer.resize(4);
+        buffer.addItem(3);
+        buffer.addItem(4);
+        buffer.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        buffer.resize(2);
+        buffer.addItem(5); // Evicts 1, 2 and 3
+        int sizeAfterAdd = buffer.getSize();
+        buffer.resize(1);
+        buffer.addAsync(6).get(1, TimeUnit.SECONDS); // Evicts 4 and 5
+        int sizeAfterAsyncAdd = buffer.getSize();
+
+        if (sizeAfterAdd == 2 && sizeAfterAsyncAdd == 1 && buffer.removeItem() == 6) {
+            System.out.println("Test Passed: DROP_OLDEST shed the excess of a shrunk buffer.");
+        } else {
+            System.err.println("Test Failed: sizes after shrinking were " + sizeAfterAdd + " and " + sizeAfterAsyncAdd);
+        }
+    }
+
+    /**
+     * Verifies that REJECT fails immediately, BLOCK_WITH_TIMEOUT fails after its timeout and
+     * CALLER_RUNS processes the item in the calling thread.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testRejectTimeoutAndCallerRuns() throws InterruptedException {
+        boolean rejected = false;
+        buffer.setOverflowPolicy(OverflowPolicy.REJECT);
+        try {
+            buffer.addItem(3);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+
+        boolean timedOut = false;
+        buffer.setBlockTimeout(50, TimeUnit.MILLISECONDS);
+        buffer.setOverflowPolicy(OverflowPolicy.BLOCK_WITH_TIMEOUT);
+        long started = System.nanoTime();
+        try {
+            buffer.addItem(4);
+        } catch (IllegalStateException e) {
+            timedOut = System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(50);
+        }
+
+        List<Integer> ranInCaller = new CopyOnWriteArrayList<>();
+        buffer.setCallerRunsHandler(ranInCaller::add);
+        buffer.setOverflowPolicy(OverflowPolicy.CALLER_RUNS);
+        buffer.addItem(5);
+
+        if (rejected && timedOut && ranInCaller.equals(List.of(5)) && buffer.getSize() == 2) {
+            System.out.println("Test Passed: Reject, timeout and caller-runs policies behaved as expected.");
+        } else {
+            System.err.println("Test Failed: rejected=" + rejected + ", timedOut=" + timedOut
+                    + ", ranInCaller=" + ranInCaller);
+        }
+    }
+
+    /**
+     * Verifies that expired items are dropped by the sweeper and never reach consumers.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testExpiredItemsAreDropped() throws InterruptedException {
+        buffer.removeItem();
+        buffer.removeItem();
+        buffer.setItemTimeToLive(50, TimeUnit.MILLISECONDS);
+        buffer.startExpirySweeper(10, TimeUnit.MILLISECONDS);
+        buffer.addItem(1);
+        buffer.addItem(2);
+        Thread.sleep(150);
+        buffer.addItem(3);
+
+        if (buffer.getExpiredCount() == 2 && buffer.getSize() == 1 && buffer.removeItem() == 3) {
+            System.out.println("Test Passed: Expired items were dropped before reaching consumers.");
+        } else {
+            System.err.println("Test Failed: Expired items were not dropped, expired=" + buffer.getExpiredCount());
+        }
+    }
+}
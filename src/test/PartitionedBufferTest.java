@@ -0,0 +1,108 @@
+package test;
+
+import buffer.PartitionedBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the PartitionedBuffer class, verifying strict per-key ordering while several
+ * consumers process lanes in parallel and the lanes are rebalanced between them.
+ */
+public class PartitionedBufferTest {
+
+    private static final int KEYS = 16;
+    private static final int ITEMS_PER_KEY = 500;
+
+    private PartitionedBuffer buffer;
+    private ExecutorService executor;
+
+    /**
+     * Initializes a buffer with 8 small lanes and an executor for the producer and consumers.
+     */
+    public void setUp() {
+        buffer = new PartitionedBuffer("test-partitioned", 8, 4);
+        executor = Executors.newFixedThreadPool(5);
+    }
+
+    /**
+     * Shuts down the executor after the test.
+     */
+    public void tearDown() {
+        if (executor != null && !executor.isShutdown()) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies that items of every key are processed in the order they were added, even though
+     * consumers join and leave while items are flowing.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testPerKeyOrderAcrossRebalances() throws InterruptedException {
+        int[] lastSequence = new int[KEYS];
+        Arrays.fill(lastSequence, -1);
+        AtomicBoolean outOfOrder = new AtomicBoolean();
+        AtomicInteger consumed = new AtomicInteger();
+        int total = KEYS * ITEMS_PER_KEY;
+
+        executor.execute(() -> {
+            try {
+                for (int seq = 0; seq < ITEMS_PER_KEY; seq++) {
+                    for (int key = 0; key < KEYS; key++) {
+                        buffer.addItem(key, key * 100_000 + seq);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int c = 1; c <= 4; c++) {
+            PartitionedBuffer.Member member = buffer.register("Consumer-" + c);
+            final boolean leavesEarly = c == 1;
+            executor.execute(() -> {
+                try {
+                    int handled = 0;
+                    while (consumed.get() < total) {
+                        int item = member.removeItem();
+                        int key = item / 100_000;
+                        int seq = item % 100_000;
+                        synchronized (lastSequence) {
+                            if (seq != lastSequence[key] + 1) {
+                                outOfOrder.set(true);
+                            }
+                            lastSequence[key] = seq;
+                        }
+                        consumed.incrementAndGet();
+                        if (leavesEarly && ++handled == 200) {
+                            member.close(); // Forces a rebalance while items are in flight
+                            return;
+                        }
+                    }
+                } catch (InterruptedException | IllegalStateException e) {
+                    // Stopped at the end of the test
+                }
+            });
+        }
+
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (consumed.get() < total && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        if (consumed.get() == total && !outOfOrder.get()) {
+            System.out.println("Test Passed: All items consumed in per-key order across rebalances.");
+        } else {
+            System.err.println("Test Failed: consumed=" + consumed.get() + "/" + total
+                    + ", outOfOrder=" + outOfOrder.get());
+        }
+        System.out.println("Lane max depths: " + Arrays.toString(buffer.getLaneMaxDepths()));
+    }
+}
@@ -0,0 +1,199 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import util.Logger;
+import util.StallWatchdog;
+
+/**
+ * Tests for the StallWatchdog class.
+ */
+public class StallWatchdogTest {
+
+    private ConfigurableBuffer buffer;
+    private StallWatchdog watchdog;
+    private Thread producer;
+    private Thread consumer;
+
+    /**
+     * Initializes a small buffer watched with a short stall threshold.
+     * Stall reports are logged to the console only.
+     */
+    public void setUp() {
+        Logger.setLogFile(null);
+        buffer = new ConfigurableBuffer("WatchedBuffer", 2);
+        buffer.setVerbose(false);
+        watchdog = new StallWatchdog(100, TimeUnit.MILLISECONDS);
+        watchdog.watchBuffer(buffer.getName(), buffer, buffer::getSize, buffer::getCapacity, buffer::getRemovedCount);
+    }
+
+    /**
+     * Stops the threads started by a test.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for them.
+     */
+    public void tearDown() throws InterruptedException {
+        for (Thread thread : new Thread[] {producer, consumer}) {
+            if (thread != null) {
+                thread.interrupt();
+                thread.join(1000);
+            }
+        }
+    }
+
+    /**
+     * Verifies that a hung consumer is reported as the bottleneck, with the waiting producer's stack.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testHungConsumerReported() throws InterruptedException {
+        producer = startProducer(new AtomicLong());
+        consumer = startHungThread("HungConsumer");
+        awaitState(producer, Thread.State.WAITING);
+        watchdog.watchThread(StallWatchdog.Role.PRODUCER, "TestProducer", producer, () -> 0);
+        watchdog.watchThread(StallWatchdog.Role.CONSUMER, "HungConsumer", consumer, () -> 0);
+
+        checkFor(300);
+
+        String report = watchdog.getLastReport();
+        if (watchdog.getStallCount() == 1 && watchdog.getLastBottleneck() == StallWatchdog.Bottleneck.CONSUMERS
+                && report.contains("depth 2/2") && report.contains("awaitSpace") && report.contains("HungConsumer")) {
+            System.out.println("Test Passed: The hung consumer was reported as the bottleneck.");
+        } else {
+            System.err.println("Test Failed: stalls=" + watchdog.getStallCount() + " bottleneck="
+                    + watchdog.getLastBottleneck() + " report=" + report);
+        }
+    }
+
+    /**
+     * Verifies that a hung producer is reported as the bottleneck while the consumer waits idle.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testHungProducerReported() throws InterruptedException {
+        producer = startHungThread("HungProducer");
+        consumer = new Thread(() -> {
+            try {
+                buffer.removeItem();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        awaitState(consumer, Thread.State.WAITING);
+        watchdog.watchThread(StallWatchdog.Role.PRODUCER, "HungProducer", producer, () -> 0);
+        watchdog.watchThread(StallWatchdog.Role.CONSUMER, "IdleConsumer", consumer, () -> 0);
+
+        checkFor(300);
+
+        if (watchdog.getStallCount() == 1 && watchdog.getLastBottleneck() == StallWatchdog.Bottleneck.PRODUCERS
+                && watchdog.getLastReport().contains("depth 0/2")) {
+            System.out.println("Test Passed: The hung producer was reported as the bottleneck.");
+        } else {
+            System.err.println("Test Failed: stalls=" + watchdog.getStallCount() + " bottleneck="
+                    + watchdog.getLastBottleneck());
+        }
+    }
+
+    /**
+     * Verifies that nothing is reported while items keep flowing.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testFlowingItemsNotReported() throws InterruptedException {
+        AtomicLong produced = new AtomicLong();
+        AtomicLong consumed = new AtomicLong();
+        producer = startProducer(produced);
+        consumer = new Thread(() -> {
+            try {
+                while (true) {
+                    buffer.removeItem();
+                    consumed.incrementAndGet();
+                    Thread.sleep(5);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        watchdog.watchThread(StallWatchdog.Role.PRODUCER, "TestProducer", producer, produced::get);
+        watchdog.watchThread(StallWatchdog.Role.CONSUMER, "TestConsumer", consumer, consumed::get);
+
+        checkFor(300);
+
+        if (watchdog.getStallCount() == 0 && consumed.get() > 0) {
+            System.out.println("Test Passed: No stall was reported while items were flowing.");
+        } else {
+            System.err.println("Test Failed: A stall was reported: " + watchdog.getLastReport());
+        }
+    }
+
+    /**
+     * Runs the watchdog's check every 10 ms for the given time.
+     *
+     * @param millis how long to keep checking.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private void checkFor(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < deadline) {
+            watchdog.check();
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Waits up to two seconds for a thread to reach a state, so that one-time initialization
+     * on the thread does not count as a stall.
+     *
+     * @param thread the thread.
+     * @param state the state to wait for.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (thread.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Starts a thread that adds items to the buffer as fast as it accepts them.
+     *
+     * @param produced counts the added items.
+     * @return the started thread.
+     */
+    private Thread startProducer(AtomicLong produced) {
+        Thread thread = new Thread(() -> {
+            try {
+                for (int i = 0; ; i++) {
+                    buffer.addItem(i);
+                    produced.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Starts a thread that hangs outside the buffer, as if stuck in a slow call.
+     *
+     * @param name the thread name.
+     * @return the started thread.
+     */
+    private Thread startHungThread(String name) {
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,138 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import buffer.SharedBuffer;
+import buffer.TimedItemBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the non-blocking and timed operations of the SharedBuffer and ConfigurableBuffer classes.
+ */
+public class TimedBufferOperationsTest {
+
+    private SharedBuffer sharedBuffer;
+    private ConfigurableBuffer configurableBuffer;
+
+    /**
+     * Initializes a SharedBuffer and a ConfigurableBuffer with room for one item before each test.
+     */
+    public void setUp() {
+        sharedBuffer = new SharedBuffer(1);
+        configurableBuffer = new ConfigurableBuffer(1);
+        configurableBuffer.setVerbose(false);
+    }
+
+    /**
+     * Verifies that tryAdd and tryRemove answer immediately on a full and an empty buffer.
+     */
+    public void testTryAddAndTryRemove() {
+        boolean passed = true;
+        for (TimedItemBuffer buffer : new TimedItemBuffer[] {sharedBuffer, configurableBuffer}) {
+            passed &= buffer.tryRemove() == null
+                    && buffer.tryAdd(1)
+                    && !buffer.tryAdd(2)
+                    && Integer.valueOf(1).equals(buffer.tryRemove())
+                    && buffer.tryRemove() == null
+                    && buffer.getSize() == 0;
+        }
+
+        if (passed) {
+            System.out.println("Test Passed: tryAdd and tryRemove fail fast on full and empty buffers.");
+        } else {
+            System.err.println("Test Failed: tryAdd and tryRemove did not behave as expected.");
+        }
+    }
+
+    /**
+     * Verifies that offer and poll give up once their timeout has elapsed, but not before it.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testTimeoutsElapse() throws InterruptedException {
+        boolean passed = true;
+        for (TimedItemBuffer buffer : new TimedItemBuffer[] {sharedBuffer, configurableBuffer}) {
+            long started = System.nanoTime();
+            boolean polledNothing = buffer.poll(30, TimeUnit.MILLISECONDS) == null;
+            long pollNanos = System.nanoTime() - started;
+
+            buffer.addItem(1);
+            started = System.nanoTime();
+            boolean offerRefused = !buffer.offer(2, 30, TimeUnit.MILLISECONDS);
+            long offerNanos = System.nanoTime() - started;
+
+            passed &= polledNothing && offerRefused
+                    && pollNanos >= TimeUnit.MILLISECONDS.toNanos(30)
+                    && offerNanos >= TimeUnit.MILLISECONDS.toNanos(30)
+                    && buffer.getSize() == 1;
+        }
+
+        if (passed) {
+            System.out.println("Test Passed: offer and poll time out after the requested deadline.");
+        } else {
+            System.err.println("Test Failed: offer and poll did not time out as expected.");
+        }
+    }
+
+    /**
+     * Verifies that a timed poll returns an item added while it waits, and a timed offer
+     * succeeds once a consumer frees a slot.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testWaitersWakeBeforeDeadline() throws InterruptedException {
+        boolean passed = true;
+        for (TimedItemBuffer buffer : new TimedItemBuffer[] {sharedBuffer, configurableBuffer}) {
+            Thread producer = new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                    buffer.addItem(7);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            producer.start();
+            Integer polled = buffer.poll(5, TimeUnit.SECONDS);
+            producer.join();
+
+            buffer.addItem(8);
+            Thread consumer = new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                    buffer.removeItem();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumer.start();
+            boolean offered = buffer.offer(9, 5, TimeUnit.SECONDS);
+            consumer.join();
+
+            passed &= Integer.valueOf(7).equals(polled) && offered
+                    && Integer.valueOf(9).equals(buffer.tryRemove());
+        }
+
+        if (passed) {
+            System.out.println("Test Passed: Timed waiters are woken before their deadline.");
+        } else {
+            System.err.println("Test Failed: Timed waiters were not woken as expected.");
+        }
+    }
+
+    /**
+     * Verifies that the ConfigurableBuffer's timed add hands its item to a pending asynchronous remover.
+     *
+     * @throws Exception if the test is interrupted or the future fails.
+     */
+    public void testOfferCompletesPendingRemover() throws Exception {
+        CompletableFuture<Integer> pending = configurableBuffer.removeAsync();
+        boolean offered = configurableBuffer.offer(5, 0, TimeUnit.MILLISECONDS);
+
+        if (offered && pending.get(1, TimeUnit.SECONDS) == 5 && configurableBuffer.getSize() == 0) {
+            System.out.println("Test Passed: offer hands its item to a pending asynchronous remover.");
+        } else {
+            System.err.println("Test Failed: offer did not complete the pending remover.");
+        }
+    }
+
+}
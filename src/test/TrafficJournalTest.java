@@ -0,0 +1,142 @@
+package test;
+
+import buffer.ConfigurableBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import producer.JournalWriter;
+import producer.ReplayProducer;
+
+/**
+ * Tests for the JournalWriter and ReplayProducer classes.
+ */
+public class TrafficJournalTest {
+
+    private static final long MS = 1_000_000L;
+
+    private Path path;
+
+    /**
+     * Creates the journal file used by a test.
+     *
+     * @throws IOException if the file cannot be created.
+     */
+    public void setUp() throws IOException {
+        path = Files.createTempFile("traffic", ".journal");
+    }
+
+    /**
+     * Deletes the journal file.
+     *
+     * @throws IOException if the file cannot be deleted.
+     */
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Verifies that replaying at maximum speed adds the captured items in order, including
+     * negative and extreme values, and that records a millisecond apart take at most five bytes.
+     *
+     * @throws Exception if the journal cannot be written or read.
+     */
+    public void testRoundTrip() throws Exception {
+        int[] items = new int[50_000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i % 100; // The range of the random producers
+        }
+        items[1] = Integer.MIN_VALUE;
+        items[2] = Integer.MAX_VALUE;
+        items[3] = -1;
+        long now = System.nanoTime();
+        try (JournalWriter journal = new JournalWriter(path)) {
+            for (int i = 0; i < items.length; i++) {
+                journal.append(items[i], now + i * MS);
+            }
+        }
+
+        ConfigurableBuffer buffer = new ConfigurableBuffer(items.length);
+        buffer.setVerbose(false);
+        ReplayProducer replay = new ReplayProducer(path, buffer, "Replay", ReplayProducer.MAX_SPEED);
+        long replayed = replay.replay();
+        boolean inOrder = replayed == items.length && buffer.getSize() == items.length;
+        for (int i = 0; inOrder && i < items.length; i++) {
+            inOrder = buffer.removeItem() == items[i];
+        }
+        long bytes = Files.size(path);
+        if (inOrder && bytes <= 4 + 5L * items.length) {
+            System.out.println("Test Passed: " + replayed + " items were replayed in order from " + bytes + " bytes.");
+        } else {
+            System.err.println("Test Failed: replayed=" + replayed + " inOrder=" + inOrder + " bytes=" + bytes);
+        }
+    }
+
+    /**
+     * Verifies that a scaled replay keeps the recorded spacing of the items, divided by the speed.
+     *
+     * @throws Exception if the journal cannot be written or read.
+     */
+    public void testScaledReplay() throws Exception {
+        int count = 21;
+        try (JournalWriter journal = new JournalWriter(path)) {
+            long now = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                journal.append(i, now + i * 10 * MS); // 200 ms of traffic
+            }
+        }
+
+        ConfigurableBuffer buffer = new ConfigurableBuffer(count);
+        buffer.setVerbose(false);
+        ReplayProducer replay = new ReplayProducer(path, buffer, "Replay", 2);
+        long started = System.nanoTime();
+        replay.replay();
+        long elapsedMs = (System.nanoTime() - started) / MS;
+
+        if (buffer.getSize() == count && elapsedMs >= 100 && elapsedMs < 1000) {
+            System.out.println("Test Passed: 200 ms of traffic was replayed at double speed in " + elapsedMs
+                    + " ms, median lag " + replay.getLag().getPercentile(50) / 1000 + " us.");
+        } else {
+            System.err.println("Test Failed: size=" + buffer.getSize() + " elapsed=" + elapsedMs + " ms");
+        }
+    }
+
+    /**
+     * Verifies that a journal whose last record was cut off replays its complete records, and that
+     * a file that is not a journal is refused.
+     *
+     * @throws Exception if the journal cannot be written or read.
+     */
+    public void testTruncatedJournal() throws Exception {
+        try (JournalWriter journal = new JournalWriter(path)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(1000 + i);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        ConfigurableBuffer buffer = new ConfigurableBuffer(10);
+        buffer.setVerbose(false);
+        long replayed = new ReplayProducer(path, buffer, "Replay", ReplayProducer.MAX_SPEED).replay();
+
+        boolean refused = false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'J', 'U', 'N', 'K'}), 0);
+        }
+        try {
+            new ReplayProducer(path, buffer, "Replay", ReplayProducer.MAX_SPEED).replay();
+        } catch (IOException e) {
+            refused = true;
+        }
+
+        if (replayed == 9 && buffer.getSize() == 9 && refused) {
+            System.out.println("Test Passed: The truncated journal replayed its complete records.");
+        } else {
+            System.err.println("Test Failed: replayed=" + replayed + " refused=" + refused);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package test;
+
+import consumer.WindowResult;
+import consumer.WindowedAggregator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the WindowedAggregator class. Items are recorded with explicit timestamps and
+ * windows are closed with advanceTo, so the results do not depend on scheduling.
+ */
+public class WindowedAggregatorTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long START = 1_000 * MS;
+
+    private List<WindowResult> results;
+
+    /**
+     * Initializes the list that collects the emitted windows.
+     */
+    public void setUp() {
+        results = new ArrayList<>();
+    }
+
+    /**
+     * Verifies count, sum, min, max and distinct count of tumbling windows.
+     */
+    public void testTumblingWindows() {
+        WindowedAggregator aggregator = new WindowedAggregator(100, TimeUnit.MILLISECONDS, results::add);
+        for (int i = 0; i < 50; i++) {
+            aggregator.record(i, START + i * MS); // First window: 0..49
+        }
+        for (int i = 0; i < 10; i++) {
+            aggregator.record(7, START + (100 + i) * MS); // Second window: ten sevens
+        }
+        aggregator.advanceTo(START + 200 * MS);
+
+        boolean passed = results.size() == 2;
+        if (passed) {
+            WindowResult first = results.get(0);
+            WindowResult second = results.get(1);
+            passed = first.getCount() == 50 && first.getSum() == 1225 && first.getMin() == 0 && first.getMax() == 49
+                    && Math.abs(first.getDistinct() - 50) <= 2 && first.getStartNanos() == START
+                    && first.getEndNanos() == START + 100 * MS
+                    && second.getCount() == 10 && second.getSum() == 70 && second.getDistinct() == 1;
+        }
+        if (passed) {
+            System.out.println("Test Passed: Tumbling windows aggregated their items.");
+        } else {
+            System.err.println("Test Failed: Unexpected tumbling windows " + results);
+        }
+    }
+
+    /**
+     * Verifies that sliding windows overlap, and that idle periods emit nothing.
+     */
+    public void testSlidingWindows() {
+        WindowedAggregator aggregator = new WindowedAggregator(30, 10, TimeUnit.MILLISECONDS, 10, results::add);
+        aggregator.record(1, START);
+        aggregator.record(2, START + 10 * MS);
+        aggregator.record(3, START + 20 * MS);
+        aggregator.advanceTo(START + 1_000_000 * MS); // Long idle period afterwards
+
+        // Windows end after each slide while they still hold an item: {1}, {1,2}, {1,2,3}, {2,3}, {3}
+        long[] expectedCounts = {1, 2, 3, 2, 1};
+        long[] expectedSums = {1, 3, 6, 5, 3};
+        boolean passed = results.size() == expectedCounts.length;
+        for (int i = 0; passed && i < expectedCounts.length; i++) {
+            passed = results.get(i).getCount() == expectedCounts[i] && results.get(i).getSum() == expectedSums[i];
+        }
+        if (passed) {
+            System.out.println("Test Passed: Sliding windows overlapped and idle windows were skipped.");
+        } else {
+            System.err.println("Test Failed: Unexpected sliding windows " + results);
+        }
+    }
+
+    /**
+     * Verifies that items for a window that has already closed are counted as late and dropped.
+     */
+    public void testLateItemsDropped() {
+        WindowedAggregator aggregator = new WindowedAggregator(100, TimeUnit.MILLISECONDS, results::add);
+        aggregator.record(1, START);
+        aggregator.advanceTo(START + 100 * MS);
+        aggregator.record(2, START + 50 * MS); // Belongs to the closed window
+        aggregator.advanceTo(START + 200 * MS);
+
+        if (results.size() == 1 && results.get(0).getSum() == 1 && aggregator.getLateCount() == 1) {
+            System.out.println("Test Passed: The late item was dropped and counted.");
+        } else {
+            System.err.println("Test Failed: results=" + results + " late=" + aggregator.getLateCount());
+        }
+    }
+
+    /**
+     * Verifies that items recorded by several threads are all merged, and that the distinct
+     * count estimate is within 5% for a large number of distinct items.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testConcurrentRecording() throws InterruptedException {
+        WindowedAggregator aggregator = new WindowedAggregator(1, TimeUnit.SECONDS, results::add);
+        int threadCount = 4;
+        int itemsPerThread = 100_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int first = t * itemsPerThread / 2; // Threads overlap by half, so half the items repeat
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < itemsPerThread; i++) {
+                    aggregator.record(first + i, START + (i % 1000) * MS);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+        }
+        aggregator.advanceTo(START + 1000 * MS);
+
+        long distinct = (threadCount + 1) * itemsPerThread / 2;
+        boolean passed = results.size() == 1 && results.get(0).getCount() == (long) threadCount * itemsPerThread
+                && Math.abs(results.get(0).getDistinct() - distinct) <= distinct * 0.05;
+        if (passed) {
+            System.out.println("Test Passed: All threads' items were merged, distinct estimate "
+                    + results.get(0).getDistinct() + " of " + distinct + ".");
+        } else {
+            System.err.println("Test Failed: Unexpected window " + results);
+        }
+    }
+
+    /**
+     * Verifies that windows closed while other threads record far ahead hold only their own
+     * pane's items. Panes are one microsecond long and every item is its pane's index, so an
+     * item merged into the wrong window shows up in the window's min or max; every item must be
+     * either emitted or counted as late.
+     *
+     * @throws InterruptedException if the thread is interrupted during the test.
+     */
+    public void testPanesIsolatedUnderConcurrentClosing() throws InterruptedException {
+        WindowedAggregator aggregator = new WindowedAggregator(1, TimeUnit.MICROSECONDS, results::add);
+        int threadCount = 8;
+        int paneCount = 20_000;
+        int itemsPerPane = 2;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            threads.add(new Thread(() -> {
+                for (int pane = 0; pane < paneCount; pane++) {
+                    for (int i = 0; i < itemsPerPane; i++) {
+                        aggregator.record(pane, START + pane * 1000L + i * 500L);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(60_000);
+        }
+        aggregator.advanceTo(START + paneCount * 1000L);
+
+        List<WindowResult> mixed = new ArrayList<>();
+        long emitted = 0;
+        for (WindowResult result : results) {
+            long pane = (result.getStartNanos() - START) / 1000;
+            emitted += result.getCount();
+            if (result.getMin() != pane || result.getMax() != pane || result.getSum() != pane * result.getCount()) {
+                mixed.add(result);
+            }
+        }
+        long recorded = (long) threadCount * paneCount * itemsPerPane;
+        if (mixed.isEmpty() && emitted + aggregator.getLateCount() == recorded) {
+            System.out.println("Test Passed: " + results.size() + " windows held only their own pane's items, "
+                    + aggregator.getLateCount() + " of " + recorded + " items were late.");
+        } else {
+            System.err.println("Test Failed: " + mixed.size() + " mixed windows, emitted=" + emitted
+                    + " late=" + aggregator.getLateCount() + " first=" + (mixed.isEmpty() ? null : mixed.get(0)));
+        }
+    }
+}
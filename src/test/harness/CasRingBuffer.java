@@ -0,0 +1,114 @@
+package test.harness;
+
+import buffer.ItemBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free bounded multi-producer, multi-consumer queue (Vyukov's array queue), used as the
+ * CAS-based baseline in contention benchmarks.
+ * Each slot carries a sequence number that tells producers and consumers whether the slot is
+ * theirs for the current lap, so a single CAS on the enqueue or dequeue position claims a slot.
+ * Blocking operations back off by spinning, yielding and finally parking briefly.
+ */
+class CasRingBuffer implements ItemBuffer {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int mask;
+    private final int[] items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * Constructs a queue holding at least the given number of items.
+     *
+     * @param capacity the requested capacity, rounded up to a power of two.
+     */
+    CasRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.items = new int[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public void addItem(int item) throws InterruptedException {
+        for (int attempt = 0; !offer(item); attempt++) {
+            backOff(attempt);
+        }
+    }
+
+    @Override
+    public int removeItem() throws InterruptedException {
+        long item;
+        for (int attempt = 0; (item = poll()) == EMPTY; attempt++) {
+            backOff(attempt);
+        }
+        return (int) item;
+    }
+
+    @Override
+    public int getSize() {
+        return (int) Math.max(0, enqueuePosition.get() - dequeuePosition.get());
+    }
+
+    private boolean offer(int item) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    items[index] = item;
+                    sequences.set(index, position + 1); // Publishes the item to consumers
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false; // The slot still holds an item from the previous lap: full
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    private long poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    int item = items[index];
+                    sequences.set(index, position + mask + 1); // Hands the slot to the next lap's producer
+                    return item;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return EMPTY; // The slot has not been filled yet: empty
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    private static void backOff(int attempt) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (attempt < 64) {
+            Thread.onSpinWait();
+        } else if (attempt < 128) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package test.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares buffer implementations under increasing contention.
+ * For every thread count, each buffer type runs an unthrottled scenario with half the threads
+ * producing and half consuming, and the throughput and latency percentiles are printed as a table.
+ * Every run is also checked for exactly-once delivery and appended to the soak reports.
+ *
+ * <pre>
+ * java test.harness.ContentionBenchmark [--threads=8,16,32,64] [--types=configurable,combining,cas]
+ *                                       [--buffer-size=1024] [--duration-ms=2000] [--warmup-ms=500]
+ *                                       [--max-items=5000000] [--report-dir=dir]
+ * </pre>
+ *
+ * The process exits with status 1 if any run loses or duplicates items.
+ */
+public class ContentionBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the options described in the class documentation.
+     * @throws Exception if a run cannot be completed or a report cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = {8, 16, 32, 64};
+        String[] bufferTypes = {"configurable", "combining", "cas"};
+        int bufferSize = 1024;
+        int durationMs = 2000;
+        int warmupMs = 500;
+        int maxItems = 5_000_000;
+        File reportDir = new File("soak-reports");
+
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                String[] values = arg.substring("--threads=".length()).split(",");
+                threadCounts = new int[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    threadCounts[i] = Integer.parseInt(values[i].trim());
+                }
+            } else if (arg.startsWith("--types=")) {
+                bufferTypes = arg.substring("--types=".length()).split(",");
+            } else if (arg.startsWith("--buffer-size=")) {
+                bufferSize = Integer.parseInt(arg.substring("--buffer-size=".length()));
+            } else if (arg.startsWith("--duration-ms=")) {
+                durationMs = Integer.parseInt(arg.substring("--duration-ms=".length()));
+            } else if (arg.startsWith("--warmup-ms=")) {
+                warmupMs = Integer.parseInt(arg.substring("--warmup-ms=".length()));
+            } else if (arg.startsWith("--max-items=")) {
+                maxItems = Integer.parseInt(arg.substring("--max-items=".length()));
+            } else if (arg.startsWith("--report-dir=")) {
+                reportDir = new File(arg.substring("--report-dir=".length()));
+            } else {
+                System.err.println("Usage: ContentionBenchmark [--threads=8,16,32,64] "
+                        + "[--types=configurable,combining,cas] [--buffer-size=n] [--duration-ms=ms] "
+                        + "[--warmup-ms=ms] [--max-items=n] [--report-dir=dir]");
+                System.exit(2);
+            }
+        }
+        if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+            throw new IOException("Cannot create report directory: " + reportDir);
+        }
+
+        List<ScenarioResult> results = new ArrayList<>();
+        boolean failed = false;
+        for (int threads : threadCounts) {
+            int producers = Math.max(1, threads / 2);
+            int consumers = Math.max(1, threads - producers);
+            for (String type : bufferTypes) {
+                String bufferType = type.trim();
+                if (warmupMs > 0) {
+                    new ScenarioRunner(new Scenario("warmup", bufferType, bufferSize, producers, consumers,
+                            warmupMs, maxItems)).run();
+                }
+                Scenario scenario = new Scenario("contention-" + bufferType + "-" + threads, bufferType,
+                        bufferSize, producers, consumers, durationMs, maxItems);
+                ScenarioResult result = new ScenarioRunner(scenario).run();
+                SoakHarness.writeReports(reportDir, result);
+                results.add(result);
+                if (!result.isExactlyOnce()) {
+                    System.err.println("FAIL " + scenario.getName() + ": " + result.getLost() + " lost, "
+                            + result.getDuplicated() + " duplicated items.");
+                    failed = true;
+                }
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%-14s %8s %14s %10s %10s %12s%n",
+                "buffer", "threads", "items/s", "p50 us", "p99 us", "max us");
+        for (ScenarioResult result : results) {
+            Scenario scenario = result.getScenario();
+            System.out.printf(Locale.ROOT, "%-14s %8d %14.0f %10.1f %10.1f %12.1f%n",
+                    scenario.getBufferType(), scenario.getProducerCount() + scenario.getConsumerCount(),
+                    result.getThroughput(), result.getLatencyMicros(50), result.getLatencyMicros(99),
+                    result.getLatencyMicros(100));
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package test.harness;
+
+import config.ConfigManager;
+
+/**
+ * A soak/stress scenario loaded from a properties file.
+ * Every key is optional; missing keys fall back to a small smoke-test configuration.
+ *
+ * <pre>
+ * scenario.name=burst-with-stalls
+ * buffer.type=configurable          # configurable | shared | conflating | combining | cas | handoff | eliminating
+ * buffer.size=64
+ * producer.count=4
+ * consumer.count=4
+ * producer.rate=20000               # items per second per producer, 0 = as fast as possible
+ * duration.ms=5000
+ * consumer.stall.count=1            # how many consumers inject stalls
+ * consumer.stall.every=5000         # stall after every N consumed items, 0 = never
+ * consumer.stall.ms=200
+ * consumer.batch.max=1              # items drained per remove (configurable buffer only)
+ * max.items=5000000                 # upper bound on items tracked for exactly-once checking
+ * </pre>
+ */
+public class Scenario {
+    private final String name;
+    private final String bufferType;
+    private final int bufferSize;
+    private final int producerCount;
+    private final int consumerCount;
+    private final int producerRate;
+    private final int durationMs;
+    private final int stallConsumerCount;
+    private final int stallEvery;
+    private final int stallMs;
+    private final int consumerBatchMax;
+    private final int maxItems;
+
+    /**
+     * Loads a scenario from a properties file.
+     *
+     * @param filePath the path to the scenario file (classpath or file system).
+     */
+    public Scenario(String filePath) {
+        ConfigManager config = new ConfigManager(filePath);
+        String fileName = filePath.substring(filePath.lastIndexOf('/') + 1).replace(".properties", "");
+        this.name = config.getString("scenario.name", fileName);
+        this.bufferType = config.getString("buffer.type", "configurable");
+        this.bufferSize = config.getInt("buffer.size", 16);
+        this.producerCount = config.getInt("producer.count", 2);
+        this.consumerCount = config.getInt("consumer.count", 2);
+        this.producerRate = config.getInt("producer.rate", 0);
+        this.durationMs = config.getInt("duration.ms", 2000);
+        this.stallConsumerCount = config.getInt("consumer.stall.count", 0);
+        this.stallEvery = config.getInt("consumer.stall.every", 0);
+        this.stallMs = config.getInt("consumer.stall.ms", 0);
+        this.consumerBatchMax = config.getInt("consumer.batch.max", 1);
+        this.maxItems = config.getInt("max.items", 5_000_000);
+    }
+
+    /**
+     * Creates an unthrottled scenario without stalls, for benchmarks that sweep thread counts.
+     *
+     * @param name the scenario name.
+     * @param bufferType the buffer implementation to test.
+     * @param bufferSize the buffer capacity.
+     * @param producerCount the number of producer threads.
+     * @param consumerCount the number of consumer threads.
+     * @param durationMs how long producers run.
+     * @param maxItems the upper bound on items tracked for exactly-once checking.
+     */
+    Scenario(String name, String bufferType, int bufferSize, int producerCount, int consumerCount,
+             int durationMs, int maxItems) {
+        this.name = name;
+        this.bufferType = bufferType;
+        this.bufferSize = bufferSize;
+        this.producerCount = producerCount;
+        this.consumerCount = consumerCount;
+        this.producerRate = 0;
+        this.durationMs = durationMs;
+        this.stallConsumerCount = 0;
+        this.stallEvery = 0;
+        this.stallMs = 0;
+        this.consumerBatchMax = 1;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * @return the scenario name (defaults to the file name).
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the buffer implementation to test.
+     */
+    public String getBufferType() {
+        return bufferType;
+    }
+
+    /**
+     * @return the buffer capacity.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of producer threads.
+     */
+    public int getProducerCount() {
+        return producerCount;
+    }
+
+    /**
+     * @return the number of consumer threads.
+     */
+    public int getConsumerCount() {
+        return consumerCount;
+    }
+
+    /**
+     * @return the target rate per producer in items per second, or 0 for unthrottled.
+     */
+    public int getProducerRate() {
+        return producerRate;
+    }
+
+    /**
+     * @return how long producers run, in milliseconds.
+     */
+    public int getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * @return the number of consumers that inject stalls.
+     */
+    public int getStallConsumerCount() {
+        return stallConsumerCount;
+    }
+
+    /**
+     * @return the number of items a stalling consumer handles between stalls, or 0 for no stalls.
+     */
+    public int getStallEvery() {
+        return stallEvery;
+    }
+
+    /**
+     * @return the length of each injected stall, in milliseconds.
+     */
+    public int getStallMs() {
+        return stallMs;
+    }
+
+    /**
+     * @return the maximum number of items a consumer drains per remove.
+     */
+    public int getConsumerBatchMax() {
+        return consumerBatchMax;
+    }
+
+    /**
+     * @return the maximum number of items produced, bounding the memory used for delivery tracking.
+     */
+    public int getMaxItems() {
+        return maxItems;
+    }
+}
@@ -0,0 +1,141 @@
+package test.harness;
+
+import java.util.Locale;
+import util.Histogram;
+
+/**
+ * The measured outcome of one scenario run, with CSV and JSON renderings for reports.
+ */
+public class ScenarioResult {
+
+    /** Column order of {@link #toCsvRow()}. */
+    public static final String CSV_HEADER = "scenario,buffer_type,buffer_size,producers,consumers,duration_ms,"
+            + "produced,consumed,lost,duplicated,throughput_per_sec,latency_p50_us,latency_p90_us,"
+            + "latency_p99_us,latency_p999_us,latency_max_us,max_depth,gc_count,gc_time_ms";
+
+    private final Scenario scenario;
+    private final long elapsedNanos;
+    private final long produced;
+    private final long consumed;
+    private final long lost;
+    private final long duplicated;
+    private final Histogram latency;
+    private final int maxDepth;
+    private final long gcCount;
+    private final long gcTimeMs;
+
+    /**
+     * Constructs a result.
+     *
+     * @param scenario the scenario that was run.
+     * @param elapsedNanos the time from the first item produced to the last item consumed.
+     * @param produced the number of items added to the buffer.
+     * @param consumed the number of items removed from the buffer.
+     * @param lost the number of produced items that were never consumed.
+     * @param duplicated the number of extra deliveries of items that were consumed more than once.
+     * @param latency the produce-to-consume latency distribution, in nanoseconds.
+     * @param maxDepth the largest buffer depth observed.
+     * @param gcCount the number of garbage collections during the run.
+     * @param gcTimeMs the time spent in garbage collection during the run.
+     */
+    public ScenarioResult(Scenario scenario, long elapsedNanos, long produced, long consumed, long lost,
+                          long duplicated, Histogram latency, int maxDepth, long gcCount, long gcTimeMs) {
+        this.scenario = scenario;
+        this.elapsedNanos = elapsedNanos;
+        this.produced = produced;
+        this.consumed = consumed;
+        this.lost = lost;
+        this.duplicated = duplicated;
+        this.latency = latency;
+        this.maxDepth = maxDepth;
+        this.gcCount = gcCount;
+        this.gcTimeMs = gcTimeMs;
+    }
+
+    /**
+     * @return the scenario that was run.
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * @return the number of items lost between producers and consumers.
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    /**
+     * @return the number of duplicate deliveries.
+     */
+    public long getDuplicated() {
+        return duplicated;
+    }
+
+    /**
+     * @return true if every produced item was consumed exactly once.
+     */
+    public boolean isExactlyOnce() {
+        return lost == 0 && duplicated == 0;
+    }
+
+    /**
+     * @return the number of items consumed per second.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : consumed * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * @param percentile the percentile to look up, between 0 and 100.
+     * @return the produce-to-consume latency at the percentile, in microseconds.
+     */
+    public double getLatencyMicros(double percentile) {
+        return latency.getPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Renders the result as a CSV row matching {@link #CSV_HEADER}.
+     *
+     * @return the CSV row.
+     */
+    public String toCsvRow() {
+        return String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d",
+                scenario.getName(), scenario.getBufferType(), scenario.getBufferSize(),
+                scenario.getProducerCount(), scenario.getConsumerCount(), scenario.getDurationMs(),
+                produced, consumed, lost, duplicated, getThroughput(),
+                getLatencyMicros(50), getLatencyMicros(90), getLatencyMicros(99), getLatencyMicros(99.9),
+                latency.getMax() / 1000.0, maxDepth, gcCount, gcTimeMs);
+    }
+
+    /**
+     * Renders the result as a JSON object.
+     *
+     * @return the JSON text.
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\n"
+                        + "  \"scenario\": \"%s\",\n"
+                        + "  \"bufferType\": \"%s\",\n"
+                        + "  \"bufferSize\": %d,\n"
+                        + "  \"producers\": %d,\n"
+                        + "  \"consumers\": %d,\n"
+                        + "  \"durationMs\": %d,\n"
+                        + "  \"produced\": %d,\n"
+                        + "  \"consumed\": %d,\n"
+                        + "  \"lost\": %d,\n"
+                        + "  \"duplicated\": %d,\n"
+                        + "  \"throughputPerSec\": %.1f,\n"
+                        + "  \"latencyMicros\": {\"p50\": %.1f, \"p90\": %.1f, \"p99\": %.1f, \"p999\": %.1f, \"max\": %.1f},\n"
+                        + "  \"maxDepth\": %d,\n"
+                        + "  \"gcCount\": %d,\n"
+                        + "  \"gcTimeMs\": %d\n"
+                        + "}\n",
+                scenario.getName(), scenario.getBufferType(), scenario.getBufferSize(),
+                scenario.getProducerCount(), scenario.getConsumerCount(), scenario.getDurationMs(),
+                produced, consumed, lost, duplicated, getThroughput(),
+                getLatencyMicros(50), getLatencyMicros(90), getLatencyMicros(99), getLatencyMicros(99.9),
+                latency.getMax() / 1000.0, maxDepth, gcCount, gcTimeMs);
+    }
+}
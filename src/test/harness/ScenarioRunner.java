@@ -0,0 +1,227 @@
+package test.harness;
+
+import buffer.ConfigurableBuffer;
+import buffer.ConflatingBuffer;
+import buffer.EliminatingBuffer;
+import buffer.FlatCombiningBuffer;
+import buffer.HandoffBuffer;
+import buffer.ItemBuffer;
+import buffer.SharedBuffer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import util.Histogram;
+
+/**
+ * Runs a single {@link Scenario} against a buffer implementation.
+ * Every item is a unique sequence number, so that each consumer can record exactly which items it
+ * received; the per-consumer records are merged afterwards to detect lost and duplicated items
+ * without adding any shared state to the hot path.
+ */
+public class ScenarioRunner {
+
+    // How long consumers may take to drain the buffer after producers stop
+    private static final long DRAIN_TIMEOUT_MS = 30_000;
+
+    private final Scenario scenario;
+
+    /**
+     * Constructs a runner for the given scenario.
+     *
+     * @param scenario the scenario to run.
+     */
+    public ScenarioRunner(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Creates the buffer implementation named by the scenario.
+     *
+     * @param scenario the scenario to create the buffer for.
+     * @return a new, empty buffer.
+     * @throws IllegalArgumentException if the buffer type is unknown.
+     */
+    static ItemBuffer createBuffer(Scenario scenario) {
+        switch (scenario.getBufferType()) {
+            case "configurable":
+                ConfigurableBuffer configurable = new ConfigurableBuffer(scenario.getBufferSize());
+                configurable.setVerbose(false);
+                return configurable;
+            case "shared":
+                return new SharedBuffer(scenario.getBufferSize());
+            case "conflating":
+                return new ConflatingBuffer(scenario.getName(), scenario.getBufferSize());
+            case "combining":
+                return new FlatCombiningBuffer(scenario.getName(), scenario.getBufferSize());
+            case "cas":
+                return new CasRingBuffer(scenario.getBufferSize());
+            case "handoff":
+                return new HandoffBuffer(scenario.getName());
+            case "eliminating":
+                ConfigurableBuffer central = new ConfigurableBuffer(scenario.getBufferSize());
+                central.setVerbose(false);
+                return new EliminatingBuffer(central);
+            default:
+                throw new IllegalArgumentException("Unknown buffer type: " + scenario.getBufferType());
+        }
+    }
+
+    /**
+     * Runs the scenario to completion.
+     *
+     * @return the measured result.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the run.
+     */
+    public ScenarioResult run() throws InterruptedException {
+        ItemBuffer buffer = createBuffer(scenario);
+        int maxItems = scenario.getMaxItems();
+        long[] sendTimes = new long[maxItems];
+        AtomicInteger sequence = new AtomicInteger();
+        LongAdder produced = new LongAdder();
+        LongAdder consumed = new LongAdder();
+        Histogram latency = new Histogram(scenario.getName() + ".latency.ns");
+        BitSet[] received = new BitSet[scenario.getConsumerCount()];
+        long[] duplicates = new long[scenario.getConsumerCount()];
+        long[] lastConsumed = new long[scenario.getConsumerCount()];
+        AtomicInteger maxDepth = new AtomicInteger();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(scenario.getDurationMs());
+
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMs();
+        long started = System.nanoTime();
+
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < scenario.getProducerCount(); i++) {
+            producers.add(new Thread(() -> {
+                long interval = scenario.getProducerRate() > 0 ? 1_000_000_000L / scenario.getProducerRate() : 0;
+                long next = System.nanoTime();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        int seq = sequence.getAndIncrement();
+                        if (seq >= maxItems) {
+                            break;
+                        }
+                        sendTimes[seq] = System.nanoTime();
+                        buffer.addItem(seq);
+                        produced.increment();
+                        if (interval > 0) {
+                            next += interval;
+                            LockSupport.parkNanos(next - System.nanoTime());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Soak-Producer-" + (i + 1)));
+        }
+
+        List<Thread> consumers = new ArrayList<>();
+        for (int i = 0; i < scenario.getConsumerCount(); i++) {
+            final int consumerId = i;
+            final boolean stalls = i < scenario.getStallConsumerCount() && scenario.getStallEvery() > 0;
+            received[i] = new BitSet();
+            consumers.add(new Thread(() -> {
+                BitSet seen = received[consumerId];
+                int[] batch = new int[Math.max(1, scenario.getConsumerBatchMax())];
+                boolean batching = batch.length > 1 && buffer instanceof ConfigurableBuffer;
+                long handled = 0;
+                try {
+                    while (true) {
+                        int count;
+                        if (batching) {
+                            count = ((ConfigurableBuffer) buffer).drainTo(batch, 0, batch.length);
+                        } else {
+                            batch[0] = buffer.removeItem();
+                            count = 1;
+                        }
+                        long now = System.nanoTime();
+                        for (int b = 0; b < count; b++) {
+                            int item = batch[b];
+                            latency.record(now - sendTimes[item]);
+                            if (seen.get(item)) {
+                                duplicates[consumerId]++;
+                            } else {
+                                seen.set(item);
+                            }
+                        }
+                        lastConsumed[consumerId] = now;
+                        consumed.add(count);
+                        if (stalls) {
+                            long before = handled;
+                            handled += count;
+                            if (before / scenario.getStallEvery() != handled / scenario.getStallEvery()) {
+                                Thread.sleep(scenario.getStallMs());
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // Stopped by the runner once the buffer has been drained
+                }
+            }, "Soak-Consumer-" + (i + 1)));
+        }
+
+        Thread depthSampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                maxDepth.accumulateAndGet(buffer.getSize(), Math::max);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }, "Soak-Depth-Sampler");
+        depthSampler.setDaemon(true);
+
+        depthSampler.start();
+        consumers.forEach(Thread::start);
+        producers.forEach(Thread::start);
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (consumed.sum() < produced.sum() && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(1);
+        }
+        for (Thread consumer : consumers) {
+            consumer.interrupt();
+            consumer.join();
+        }
+        depthSampler.interrupt();
+
+        long finished = started;
+        BitSet all = new BitSet();
+        long deliveries = 0;
+        long duplicated = 0;
+        for (int i = 0; i < received.length; i++) {
+            finished = Math.max(finished, lastConsumed[i]);
+            deliveries += received[i].cardinality();
+            duplicated += duplicates[i];
+            all.or(received[i]);
+        }
+        // Items received by more than one consumer are duplicates too
+        duplicated += deliveries - all.cardinality();
+        long lost = produced.sum() - all.cardinality();
+
+        return new ScenarioResult(scenario, finished - started, produced.sum(), consumed.sum(), lost,
+                duplicated, latency, maxDepth.get(), gcCount() - gcCountBefore, gcTimeMs() - gcTimeBefore);
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcTimeMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,208 @@
+package test.harness;
+
+import buffer.BatchDrained;
+import buffer.BufferEmptyWait;
+import buffer.BufferFullWait;
+import buffer.BufferResized;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Command line entry point of the soak and stress harness.
+ * Runs each scenario file in turn, appends one row per run to {@code soak-report.csv}, writes a
+ * {@code <scenario>.json} report next to it, and optionally compares the results with a stored baseline.
+ *
+ * <pre>
+ * java test.harness.SoakHarness [--report-dir=dir] [--baseline=file] [--tolerance=percent]
+ *                               [--update-baseline] [--jfr=file.jfr] [--jfr-threshold-ms=ms]
+ *                               scenario.properties...
+ * </pre>
+ *
+ * With {@code --jfr} the whole run is captured in a Java Flight Recorder file (JDK default settings
+ * plus the buffer events) that can be opened in JDK Mission Control; buffer waits shorter than
+ * {@code --jfr-threshold-ms} are not recorded.
+ *
+ * The process exits with status 1 if any run loses or duplicates items, or, when a baseline is
+ * given, if throughput drops or p99 latency grows by more than the tolerance.
+ */
+public class SoakHarness {
+
+    private static final int DEFAULT_TOLERANCE_PERCENT = 10;
+
+    /**
+     * Runs the harness.
+     *
+     * @param args the options and scenario files described in the class documentation.
+     * @throws Exception if a scenario cannot be run or a report cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        File reportDir = new File("soak-reports");
+        File baselineFile = null;
+        int tolerancePercent = DEFAULT_TOLERANCE_PERCENT;
+        boolean updateBaseline = false;
+        File jfrFile = null;
+        long jfrThresholdMs = 10;
+        List<String> scenarioFiles = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--report-dir=")) {
+                reportDir = new File(arg.substring("--report-dir=".length()));
+            } else if (arg.startsWith("--baseline=")) {
+                baselineFile = new File(arg.substring("--baseline=".length()));
+            } else if (arg.startsWith("--tolerance=")) {
+                tolerancePercent = Integer.parseInt(arg.substring("--tolerance=".length()));
+            } else if (arg.equals("--update-baseline")) {
+                updateBaseline = true;
+            } else if (arg.startsWith("--jfr=")) {
+                jfrFile = new File(arg.substring("--jfr=".length()));
+            } else if (arg.startsWith("--jfr-threshold-ms=")) {
+                jfrThresholdMs = Long.parseLong(arg.substring("--jfr-threshold-ms=".length()));
+            } else {
+                scenarioFiles.add(arg);
+            }
+        }
+        if (scenarioFiles.isEmpty()) {
+            System.err.println("Usage: SoakHarness [--report-dir=dir] [--baseline=file] [--tolerance=percent] "
+                    + "[--update-baseline] [--jfr=file.jfr] [--jfr-threshold-ms=ms] scenario.properties...");
+            System.exit(2);
+        }
+        if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+            throw new IOException("Cannot create report directory: " + reportDir);
+        }
+
+        Properties baseline = loadBaseline(baselineFile);
+        Recording recording = jfrFile == null ? null : startRecording(jfrThresholdMs);
+        boolean failed = false;
+        for (String scenarioFile : scenarioFiles) {
+            Scenario scenario = new Scenario(scenarioFile);
+            System.out.println("Running scenario: " + scenario.getName());
+            ScenarioResult result = new ScenarioRunner(scenario).run();
+            writeReports(reportDir, result);
+            System.out.println(ScenarioResult.CSV_HEADER);
+            System.out.println(result.toCsvRow());
+
+            if (!result.isExactlyOnce()) {
+                System.err.println("FAIL " + scenario.getName() + ": " + result.getLost() + " lost, "
+                        + result.getDuplicated() + " duplicated items.");
+                failed = true;
+            }
+            if (updateBaseline) {
+                baseline.setProperty(scenario.getName() + ".throughput", String.valueOf(result.getThroughput()));
+                baseline.setProperty(scenario.getName() + ".latency.p99.us", String.valueOf(result.getLatencyMicros(99)));
+            } else if (!checkBaseline(baseline, result, tolerancePercent)) {
+                failed = true;
+            }
+        }
+
+        if (recording != null) {
+            recording.stop();
+            recording.dump(jfrFile.toPath());
+            recording.close();
+            System.out.println("Flight recording written to " + jfrFile);
+        }
+        if (updateBaseline && baselineFile != null) {
+            try (OutputStream os = new FileOutputStream(baselineFile)) {
+                baseline.store(os, "Soak harness baseline");
+            }
+            System.out.println("Baseline written to " + baselineFile);
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts a flight recording with the JDK default settings and the buffer events enabled.
+     *
+     * @param thresholdMs the minimum duration of buffer waits that are recorded.
+     * @return the running recording.
+     * @throws Exception if the default settings cannot be loaded.
+     */
+    private static Recording startRecording(long thresholdMs) throws Exception {
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("soak-harness");
+        recording.enable(BufferFullWait.class).withThreshold(Duration.ofMillis(thresholdMs));
+        recording.enable(BufferEmptyWait.class).withThreshold(Duration.ofMillis(thresholdMs));
+        recording.enable(BatchDrained.class);
+        recording.enable(BufferResized.class);
+        recording.start();
+        return recording;
+    }
+
+    private static Properties loadBaseline(File baselineFile) throws IOException {
+        Properties baseline = new Properties();
+        if (baselineFile != null && baselineFile.isFile()) {
+            try (InputStream is = new FileInputStream(baselineFile)) {
+                baseline.load(is);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Compares a result against the stored baseline for its scenario.
+     * Scenarios without a baseline entry always pass.
+     *
+     * @param baseline the stored baseline values.
+     * @param result the result to check.
+     * @param tolerancePercent the allowed regression, in percent.
+     * @return true if the result is within tolerance of the baseline.
+     */
+    private static boolean checkBaseline(Properties baseline, ScenarioResult result, int tolerancePercent) {
+        String name = result.getScenario().getName();
+        boolean passed = true;
+        String throughput = baseline.getProperty(name + ".throughput");
+        if (throughput != null) {
+            double minimum = Double.parseDouble(throughput) * (100 - tolerancePercent) / 100.0;
+            if (result.getThroughput() < minimum) {
+                System.err.printf("FAIL %s: throughput %.1f/s is below baseline %s/s%n",
+                        name, result.getThroughput(), throughput);
+                passed = false;
+            }
+        }
+        String p99 = baseline.getProperty(name + ".latency.p99.us");
+        if (p99 != null) {
+            double maximum = Double.parseDouble(p99) * (100 + tolerancePercent) / 100.0;
+            if (result.getLatencyMicros(99) > maximum) {
+                System.err.printf("FAIL %s: p99 latency %.1fus is above baseline %sus%n",
+                        name, result.getLatencyMicros(99), p99);
+                passed = false;
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Appends a result to {@code soak-report.csv} and writes it to {@code <scenario>.json}.
+     *
+     * @param reportDir the directory holding the reports.
+     * @param result the result to write.
+     * @throws IOException if a report cannot be written.
+     */
+    static void writeReports(File reportDir, ScenarioResult result) throws IOException {
+        File csv = new File(reportDir, "soak-report.csv");
+        boolean newFile = !csv.exists();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(csv, true))) {
+            if (newFile) {
+                writer.println(ScenarioResult.CSV_HEADER);
+            }
+            writer.println(result.toCsvRow());
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(
+                new File(reportDir, result.getScenario().getName() + ".json")))) {
+            writer.print(result.toJson());
+        }
+    }
+}